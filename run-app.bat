@@ -4,7 +4,7 @@ echo  Book Review Application Setup
 echo ================================
 echo.
 echo This script will compile and run the Book Review Application.
-echo Please ensure you have Java 17 or higher installed.
+echo Please ensure you have Java 21 or higher installed.
 echo.
 pause
 
@@ -13,7 +13,7 @@ echo Step 1: Checking Java installation...
 java -version
 if errorlevel 1 (
     echo ERROR: Java is not installed or not found in PATH.
-    echo Please install Java 17 or higher and ensure it's in your PATH.
+    echo Please install Java 21 or higher and ensure it's in your PATH.
     pause
     exit /b 1
 )
@@ -0,0 +1,56 @@
+package com.bookreview.benchmark;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for benchmarks that need the application context and a seeded database.
+ * The dataset size is a JMH parameter, so every benchmark reports it with its results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public abstract class ApplicationBenchmark {
+    
+    @Param("1000")
+    public int books;
+    
+    @Param("10")
+    public int reviewsPerBook;
+    
+    protected ConfigurableApplicationContext context;
+    
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = start();
+        BenchmarkDataset.seed(context, books, reviewsPerBook);
+        prepare();
+    }
+    
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+    
+    // Starts the application; benchmarks that need a web server or other settings override this
+    protected ConfigurableApplicationContext start() {
+        return BenchmarkDataset.startApplication();
+    }
+    
+    // Look up beans and precompute inputs once the dataset is seeded
+    protected abstract void prepare();
+    
+    protected <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bookreview.benchmark;
+
+import com.bookreview.BookReviewApplication;
+import com.bookreview.bulk.DataGenerator;
+import com.bookreview.ratings.RatingStatsService;
+import com.bookreview.search.BookSearchService;
+import com.bookreview.service.DashboardService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against a private in-memory database and fills it with a
+ * reproducible dataset from DataGenerator: the same sizes always produce the same rows, with
+ * book ids 1 to books.
+ */
+public final class BenchmarkDataset {
+    
+    private static final long SEED = 42L;
+    
+    private BenchmarkDataset() {
+    }
+    
+    public static ConfigurableApplicationContext startApplication() {
+        return startApplication(WebApplicationType.NONE);
+    }
+    
+    // Settings are passed as command line arguments so they override application.properties
+    public static ConfigurableApplicationContext startApplication(WebApplicationType webApplicationType,
+                                                                  String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--spring.thymeleaf.cache=true",
+                "--logging.level.root=WARN",
+                "--logging.level.com.bookreview=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--bookreview.sample-data.enabled=false"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(BookReviewApplication.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+    }
+    
+    public static void seed(ConfigurableApplicationContext context, int books, int reviewsPerBook) {
+        try {
+            context.getBean(DataGenerator.class).generate(new DataGenerator.Spec(books, reviewsPerBook, SEED));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        
+        // The generator only starts these reloads in the background; benchmarks need them done
+        context.getBean(BookSearchService.class).rebuild();
+        context.getBean(RatingStatsService.class).rebuild();
+        context.getBean(DashboardService.class).markStale();
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookreview.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full HTTP round trips against Tomcat, with request handling on platform threads
+ * (threads.max=200, as in the docker profile) or on virtual threads (the virtual-threads
+ * profile), both against a 20-connection pool. Many client threads keep far more requests
+ * in flight than there are connections; Throughput and SampleTime (p99) are reported.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class HttpBenchmarks extends ApplicationBenchmark {
+    
+    @Param({"platform", "virtual"})
+    public String threads;
+    
+    private HttpClient client;
+    
+    private String baseUrl;
+    
+    @Override
+    protected ConfigurableApplicationContext start() {
+        return BenchmarkDataset.startApplication(WebApplicationType.SERVLET,
+                "server.port=0",
+                "server.tomcat.threads.max=200",
+                "spring.datasource.hikari.maximum-pool-size=20",
+                "spring.profiles.active=" + ("virtual".equals(threads) ? "virtual-threads" : "default"));
+    }
+    
+    @Override
+    protected void prepare() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+    
+    @Benchmark
+    public int viewBook() throws IOException, InterruptedException {
+        return get("/books/" + (1 + ThreadLocalRandom.current().nextInt(books)));
+    }
+    
+    @Benchmark
+    public int listReviews() throws IOException, InterruptedException {
+        return get("/reviews");
+    }
+    
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
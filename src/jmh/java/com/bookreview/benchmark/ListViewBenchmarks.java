@@ -0,0 +1,95 @@
+package com.bookreview.benchmark;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.ReviewRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The queries behind the /books and /reviews list pages, reading either full entities, as
+ * those pages used to, or the summary projections with SQL-truncated text that they read now.
+ * Add -Djmh.extraArgs="-prof gc" to compare the heap allocated per page (gc.alloc.rate.norm);
+ * the characters of description and comment text each variant reads per page are printed
+ * once the dataset is seeded.
+ */
+public class ListViewBenchmarks extends ApplicationBenchmark {
+    
+    // A default page plus the row that tells whether there is a next one
+    private static final int PAGE_ROWS = 21;
+    
+    @Param({"entity", "summary"})
+    public String rows;
+    
+    private EntityManagerFactory entityManagerFactory;
+    
+    private BookRepository bookRepository;
+    
+    private ReviewRepository reviewRepository;
+    
+    @Override
+    protected void prepare() {
+        entityManagerFactory = bean(EntityManagerFactory.class);
+        bookRepository = bean(BookRepository.class);
+        reviewRepository = bean(ReviewRepository.class);
+        
+        long bookText = "summary".equals(rows)
+                ? bookRepository.findSummaryFirstPage(Limit.of(PAGE_ROWS)).stream()
+                        .mapToLong(book -> length(book.descriptionSnippet())).sum()
+                : loadBookEntities().stream().mapToLong(book -> length(book.getDescription())).sum();
+        long reviewText = "summary".equals(rows)
+                ? reviewRepository.findSummaryLatestPage(Limit.of(PAGE_ROWS)).stream()
+                        .mapToLong(review -> length(review.commentSnippet())).sum()
+                : loadReviewEntities().stream().mapToLong(review -> length(review.getComment())).sum();
+        System.out.printf("%n%s rows read %d description characters per book page and %d comment characters "
+                + "per review page%n", rows, bookText, reviewText);
+    }
+    
+    @Benchmark
+    public List<?> bookListPage() {
+        if ("summary".equals(rows)) {
+            return bookRepository.findSummaryFirstPage(Limit.of(PAGE_ROWS));
+        }
+        return loadBookEntities();
+    }
+    
+    @Benchmark
+    public List<?> reviewListPage() {
+        if ("summary".equals(rows)) {
+            return reviewRepository.findSummaryLatestPage(Limit.of(PAGE_ROWS));
+        }
+        return loadReviewEntities();
+    }
+    
+    // The entity queries the list pages ran before they switched to BookSummary and ReviewSummary
+    private List<Book> loadBookEntities() {
+        return inEntityManager(entityManager -> entityManager
+                .createQuery("SELECT b FROM Book b ORDER BY b.createdAt DESC, b.id DESC", Book.class)
+                .setMaxResults(PAGE_ROWS)
+                .getResultList());
+    }
+    
+    private List<Review> loadReviewEntities() {
+        return inEntityManager(entityManager -> entityManager
+                .createQuery("SELECT r FROM Review r JOIN FETCH r.book ORDER BY r.createdAt DESC, r.id DESC", Review.class)
+                .setMaxResults(PAGE_ROWS)
+                .getResultList());
+    }
+    
+    private <T> T inEntityManager(Function<EntityManager, T> work) {
+        try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+            return work.apply(entityManager);
+        }
+    }
+    
+    private static long length(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
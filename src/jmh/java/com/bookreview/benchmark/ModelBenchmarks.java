@@ -0,0 +1,32 @@
+package com.bookreview.benchmark;
+
+import com.bookreview.model.Book;
+import com.bookreview.repository.BookRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity accessors called for every book a list template renders.
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModelBenchmarks extends ApplicationBenchmark {
+    
+    private List<Book> loadedBooks;
+    
+    private int next;
+    
+    @Override
+    protected void prepare() {
+        loadedBooks = bean(BookRepository.class).findAll(PageRequest.of(0, 100)).getContent();
+    }
+    
+    @Benchmark
+    public double bookAverageRating() {
+        next = (next + 1) % loadedBooks.size();
+        return loadedBooks.get(next).getAverageRating();
+    }
+}
@@ -0,0 +1,71 @@
+package com.bookreview.benchmark;
+
+import com.bookreview.model.BookSummary;
+import com.bookreview.service.BookService;
+import com.bookreview.service.DashboardService;
+import com.bookreview.service.DashboardSnapshot;
+import com.bookreview.service.KeysetPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Thymeleaf rendering of the busiest pages. The model is built once, so only template
+ * processing is measured, not the queries behind it.
+ */
+public class RenderingBenchmarks extends ApplicationBenchmark {
+    
+    private SpringTemplateEngine templateEngine;
+    
+    private JakartaServletWebApplication webApplication;
+    
+    private Map<String, Object> bookListModel;
+    
+    private Map<String, Object> homeModel;
+    
+    @Override
+    protected void prepare() {
+        templateEngine = bean(SpringTemplateEngine.class);
+        webApplication = JakartaServletWebApplication.buildApplication(new MockServletContext());
+        
+        KeysetPage<BookSummary> page = bean(BookService.class).getBookSummariesPage(null, null);
+        bookListModel = new HashMap<>();
+        bookListModel.put("books", page.items());
+        bookListModel.put("nextCursor", page.nextCursor());
+        
+        DashboardSnapshot dashboard = bean(DashboardService.class).getSnapshot();
+        homeModel = new HashMap<>();
+        homeModel.put("totalBooks", dashboard.totalBooks());
+        homeModel.put("totalReviews", dashboard.totalReviews());
+        homeModel.put("recentBooks", dashboard.recentBooks());
+        homeModel.put("recentReviews", dashboard.recentReviews());
+    }
+    
+    @Benchmark
+    public String renderBookList() {
+        return render("books/list", "/books", bookListModel);
+    }
+    
+    @Benchmark
+    public String renderHome() {
+        return render("home", "/", homeModel);
+    }
+    
+    private String render(String template, String path, Map<String, Object> model) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        WebContext context = new WebContext(
+                webApplication.buildExchange(request, new MockHttpServletResponse()), Locale.ENGLISH, model);
+        StringWriter writer = new StringWriter(32 * 1024);
+        templateEngine.process(template, context, writer);
+        return writer.toString();
+    }
+}
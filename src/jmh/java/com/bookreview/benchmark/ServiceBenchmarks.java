@@ -0,0 +1,74 @@
+package com.bookreview.benchmark;
+
+import com.bookreview.bulk.DataGenerator;
+import com.bookreview.model.Book;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.Genre;
+import com.bookreview.service.BookService;
+import com.bookreview.service.GenreService;
+import com.bookreview.service.KeysetPage;
+import com.bookreview.service.ReviewService;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service and repository hot paths, measured through the service layer against H2.
+ */
+public class ServiceBenchmarks extends ApplicationBenchmark {
+    
+    private BookService bookService;
+    
+    private ReviewService reviewService;
+    
+    private GenreService genreService;
+    
+    private Genre genre;
+    
+    private long maxBookId;
+    
+    @Override
+    protected void prepare() {
+        bookService = bean(BookService.class);
+        reviewService = bean(ReviewService.class);
+        genreService = bean(GenreService.class);
+        genre = genreService.findByName(DataGenerator.GENRES[0]).orElseThrow();
+        maxBookId = bookService.getTotalBookCount();
+    }
+    
+    @Benchmark
+    public List<BookSummary> searchBooksSingleTerm() {
+        return bookService.searchBookSummaries("garden");
+    }
+    
+    @Benchmark
+    public List<BookSummary> searchBooksTwoTerms() {
+        return bookService.searchBookSummaries("winter orwell");
+    }
+    
+    @Benchmark
+    public List<Book> getBooksByGenre() {
+        return bookService.getBooksByGenre("fiction");
+    }
+    
+    @Benchmark
+    public KeysetPage<BookSummary> getBooksByGenrePage() {
+        return bookService.getBookSummariesByGenrePage(genre, null, null);
+    }
+    
+    @Benchmark
+    public List<Genre> getGenreFacets() {
+        return genreService.getGenreFacets();
+    }
+    
+    @Benchmark
+    public List<Book> getAllBooks() {
+        return bookService.getAllBooks();
+    }
+    
+    @Benchmark
+    public Double getAverageRatingByBookId() {
+        return reviewService.getAverageRatingByBookId(ThreadLocalRandom.current().nextLong(1, maxBookId + 1));
+    }
+}
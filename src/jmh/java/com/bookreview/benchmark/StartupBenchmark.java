@@ -0,0 +1,139 @@
+package com.bookreview.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time-to-first-200 of /actuator/health and /books from process launch, for the standard
+ * executable jar and for the fast-startup build (AOT-processed, extracted, with a CDS archive).
+ * Each mode is started runs times, alternating, each on a fresh in-memory database; the
+ * application output of every run goes to target/startup-benchmark.
+ *
+ * Usage: StartupBenchmark standard.jar fast-startup-directory [runs] [application arguments...]
+ */
+public final class StartupBenchmark {
+    
+    private static final String[] PATHS = {"/actuator/health", "/books"};
+    
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+    
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+    
+    private record Mode(String name, File workingDirectory, List<String> jvmArguments, String jar) {
+    }
+    
+    private StartupBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: StartupBenchmark standard.jar fast-startup-directory [runs] [application arguments...]");
+            System.exit(2);
+        }
+        File standardJar = new File(args[0]).getAbsoluteFile();
+        File fastDirectory = new File(args[1]).getAbsoluteFile();
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        List<String> applicationArguments = args.length > 3 ? Arrays.asList(args).subList(3, args.length) : List.of();
+        
+        File[] fastJars = fastDirectory.listFiles((directory, name) -> name.endsWith(".jar"));
+        File archive = new File(fastDirectory, "application.jsa");
+        if (!standardJar.isFile() || fastJars == null || fastJars.length != 1 || !archive.isFile()) {
+            System.err.println("Build both modes first: mvn -Pfast-startup package -DskipTests");
+            System.exit(2);
+        }
+        List<Mode> modes = List.of(
+                new Mode("standard", standardJar.getParentFile(), List.of(), standardJar.getName()),
+                new Mode("fast", fastDirectory,
+                        List.of("-XX:SharedArchiveFile=" + archive.getName(), "-Dspring.aot.enabled=true"), fastJars[0].getName()));
+        File logDirectory = new File(standardJar.getParentFile(), "startup-benchmark");
+        logDirectory.mkdirs();
+        
+        // [mode][path][run] in milliseconds
+        long[][][] millis = new long[modes.size()][PATHS.length][runs];
+        for (int run = 0; run < runs; run++) {
+            for (int m = 0; m < modes.size(); m++) {
+                long[] firstOk = launch(modes.get(m), applicationArguments, new File(logDirectory, modes.get(m).name() + "-" + run + ".log"));
+                for (int p = 0; p < PATHS.length; p++) {
+                    millis[m][p][run] = firstOk[p];
+                }
+                System.out.printf("run %d %-8s %s%n", run + 1, modes.get(m).name(), Arrays.toString(firstOk));
+            }
+        }
+        
+        System.out.printf("%n%-8s %-18s %9s %9s %9s%n", "Mode", "Path", "Median", "Min", "Max");
+        for (int m = 0; m < modes.size(); m++) {
+            for (int p = 0; p < PATHS.length; p++) {
+                long[] sorted = millis[m][p].clone();
+                Arrays.sort(sorted);
+                System.out.printf("%-8s %-18s %7dms %7dms %7dms%n", modes.get(m).name(), PATHS[p],
+                        sorted[runs / 2], sorted[0], sorted[runs - 1]);
+            }
+        }
+    }
+    
+    // Milliseconds from launch to the first 200 of each path, polled every 10ms
+    private static long[] launch(Mode mode, List<String> applicationArguments, File log) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(mode.jvmArguments());
+        command.add("-jar");
+        command.add(mode.jar());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:h2:mem:startup");
+        command.addAll(applicationArguments);
+        
+        long[] firstOk = new long[PATHS.length];
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(mode.workingDirectory())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            for (int p = 0; p < PATHS.length; p++) {
+                URI uri = URI.create("http://localhost:" + port + PATHS[p]);
+                while (!isOk(uri)) {
+                    if (!process.isAlive() || System.nanoTime() - start > TIMEOUT.toNanos()) {
+                        throw new IllegalStateException(mode.name() + " did not answer " + PATHS[p] + ", see " + log);
+                    }
+                    Thread.sleep(10);
+                }
+                firstOk[p] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+        return firstOk;
+    }
+    
+    private static boolean isOk(URI uri) throws InterruptedException {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(10)).build();
+            return CLIENT.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException notListeningYet) {
+            return false;
+        }
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
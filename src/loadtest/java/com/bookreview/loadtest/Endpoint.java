@@ -0,0 +1,82 @@
+package com.bookreview.loadtest;
+
+import com.bookreview.bulk.DataGenerator.GeneratedDataset;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * The requests of the load mix, named as in loadtest.mix. Book ids are drawn uniformly from
+ * the id range of the generated dataset, search terms from the words its titles are made of.
+ */
+enum Endpoint {
+    
+    HOME("home", "GET /"),
+    BOOKS("books", "GET /books"),
+    SEARCH("search", "GET /books?search="),
+    BOOK("book", "GET /books/{id}"),
+    BOOK_REVIEWS("bookReviews", "GET /reviews/book/{id}"),
+    CREATE_REVIEW("createReview", "POST /reviews/new");
+    
+    private static final String[] SEARCH_TERMS = {
+        "garden", "winter", "shadow river", "golden", "storm", "orwell", "secret garden", "night"
+    };
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    
+    private final String key;
+    
+    private final String label;
+    
+    Endpoint(String key, String label) {
+        this.key = key;
+        this.label = label;
+    }
+    
+    String key() {
+        return key;
+    }
+    
+    String label() {
+        return label;
+    }
+    
+    static Endpoint fromKey(String key) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.key.equals(key)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint in loadtest.mix: " + key);
+    }
+    
+    HttpRequest request(String baseUrl, SplittableRandom random, GeneratedDataset dataset) {
+        return switch (this) {
+            case HOME -> get(baseUrl + "/");
+            case BOOKS -> get(baseUrl + "/books");
+            case SEARCH -> get(baseUrl + "/books?search="
+                    + URLEncoder.encode(SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], StandardCharsets.UTF_8));
+            case BOOK -> get(baseUrl + "/books/" + bookId(random, dataset));
+            case BOOK_REVIEWS -> get(baseUrl + "/reviews/book/" + bookId(random, dataset));
+            case CREATE_REVIEW -> HttpRequest.newBuilder(URI.create(baseUrl + "/reviews/new"))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("bookId=" + bookId(random, dataset)
+                            + "&reviewerName=Load+Test&rating=" + (1 + random.nextInt(5))
+                            + "&comment=Written+by+the+load+test+driver."))
+                    .build();
+        };
+    }
+    
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build();
+    }
+    
+    private static long bookId(SplittableRandom random, GeneratedDataset dataset) {
+        return dataset.firstBookId() + random.nextInt(dataset.books());
+    }
+}
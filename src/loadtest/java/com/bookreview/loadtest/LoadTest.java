@@ -0,0 +1,175 @@
+package com.bookreview.loadtest;
+
+import com.bookreview.BookReviewApplication;
+import com.bookreview.bulk.DataGenerator;
+import com.bookreview.bulk.DataGenerator.GeneratedDataset;
+import com.bookreview.ratings.RatingStatsService;
+import com.bookreview.search.BookSearchService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts the application on a random port with a generated dataset and drives the real
+ * controllers with an open workload: requests arrive as a Poisson process at loadtest.rate per
+ * second, whether or not earlier ones have completed, and each latency is measured from the
+ * request's scheduled arrival rather than from when it was actually sent. A server that falls
+ * behind therefore shows up in the percentiles, instead of silently slowing the load down
+ * (coordinated omission).
+ *
+ * The dataset, the arrival times and the request mix all derive from loadtest.seed, so two
+ * runs with the same settings send the same requests. Settings are system properties (see the
+ * load-test profile in pom.xml); loadtest.appArgs holds extra application properties, e.g.
+ * "spring.profiles.active=virtual-threads".
+ */
+public final class LoadTest {
+    
+    private static final String DEFAULT_MIX = "home=5,books=15,search=10,book=40,bookReviews=25,createReview=5";
+    
+    private LoadTest() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 20);
+        int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 60);
+        int books = Integer.getInteger("loadtest.books", 20_000);
+        int reviewsPerBook = Integer.getInteger("loadtest.reviewsPerBook", 10);
+        long seed = Long.getLong("loadtest.seed", 42L);
+        String mix = System.getProperty("loadtest.mix", DEFAULT_MIX);
+        String appArgs = System.getProperty("loadtest.appArgs", "").trim();
+        File results = new File(System.getProperty("loadtest.results", "target/loadtest-results.json"));
+        
+        Map<Endpoint, Integer> weights = parseMix(mix);
+        ConfigurableApplicationContext context = start(appArgs.isEmpty() ? List.of() : Arrays.asList(appArgs.split("\\s+")));
+        try {
+            GeneratedDataset dataset = context.getBean(DataGenerator.class).generate(new DataGenerator.Spec(books, reviewsPerBook, seed));
+            context.getBean(BookSearchService.class).rebuild();
+            context.getBean(RatingStatsService.class).rebuild();
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            
+            ExecutorService callbacks = Executors.newVirtualThreadPerTaskExecutor();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(callbacks)
+                    .build();
+            System.out.printf("Warming up for %ds at %.0f requests/s%n", warmupSeconds, rate);
+            drive(client, baseUrl, weights, dataset, rate, warmupSeconds, new SplittableRandom(seed - 1));
+            System.out.printf("Measuring for %ds at %.0f requests/s%n", durationSeconds, rate);
+            LoadTestReport report = drive(client, baseUrl, weights, dataset, rate, durationSeconds, new SplittableRandom(seed));
+            callbacks.shutdown();
+            
+            report.print(System.out);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("rate", String.valueOf(rate));
+            params.put("books", String.valueOf(books));
+            params.put("reviewsPerBook", String.valueOf(reviewsPerBook));
+            params.put("mix", mix);
+            params.put("appArgs", appArgs);
+            report.writeJson(results, params);
+            report.writeHistograms(new File(results.getParentFile(), "loadtest"));
+            System.out.println("Results written to " + results);
+        } finally {
+            context.close();
+        }
+    }
+    
+    // Settings are passed as command line arguments so they override application.properties
+    private static ConfigurableApplicationContext start(List<String> properties) {
+        // DevTools is on the test classpath; its restart class loader has no place in a measurement
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--spring.thymeleaf.cache=true",
+                "--logging.level.root=WARN",
+                "--logging.level.com.bookreview=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--bookreview.sample-data.enabled=false"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(BookReviewApplication.class).run(args.toArray(String[]::new));
+    }
+    
+    // Issues requests at their scheduled times for the given number of seconds, then waits for
+    // the outstanding ones; a request sent late still counts from its scheduled time
+    private static LoadTestReport drive(HttpClient client, String baseUrl, Map<Endpoint, Integer> weights, GeneratedDataset dataset,
+                                        double rate, int seconds, SplittableRandom random) throws InterruptedException {
+        LoadTestReport report = new LoadTestReport();
+        Endpoint[] endpoints = weights.keySet().toArray(Endpoint[]::new);
+        int[] cumulative = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulative[i] = total;
+        }
+        
+        AtomicLong outstanding = new AtomicLong();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long scheduled = start;
+        while (scheduled < end) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int pick = random.nextInt(total);
+            int index = 0;
+            while (cumulative[index] <= pick) {
+                index++;
+            }
+            Endpoint endpoint = endpoints[index];
+            long scheduledAt = scheduled;
+            outstanding.incrementAndGet();
+            client.sendAsync(endpoint.request(baseUrl, random, dataset), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        report.record(endpoint, System.nanoTime() - scheduledAt, error != null || response.statusCode() >= 400);
+                        outstanding.decrementAndGet();
+                    });
+            scheduled += (long) (-meanIntervalNanos * Math.log(1 - random.nextDouble()));
+        }
+        while (outstanding.get() > 0) {
+            Thread.sleep(10);
+        }
+        report.finish(seconds);
+        return report;
+    }
+    
+    // "name=weight,..." in the order given
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split("=");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("loadtest.mix entries are name=weight: " + part);
+            }
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight > 0) {
+                weights.put(Endpoint.fromKey(nameAndWeight[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no endpoint with a positive weight");
+        }
+        return weights;
+    }
+}
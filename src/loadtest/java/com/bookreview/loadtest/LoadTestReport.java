@@ -0,0 +1,139 @@
+package com.bookreview.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms (microseconds, from each request's scheduled start) and error counts per
+ * endpoint for one phase of a load test. Results are exported in the JMH JSON layout, one entry
+ * per endpoint and metric, so two runs can be compared with BenchmarkComparison.
+ */
+class LoadTestReport {
+    
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    
+    private static final String[] PERCENTILE_NAMES = {"p50", "p99", "p999"};
+    
+    private static final String ALL = "all";
+    
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    
+    private double seconds;
+    
+    LoadTestReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+    
+    void record(Endpoint endpoint, long latencyNanos, boolean failed) {
+        histograms.get(endpoint).recordValue(Math.max(1, latencyNanos / 1000));
+        if (failed) {
+            errors.get(endpoint).increment();
+        }
+    }
+    
+    // The length of the measured phase, over which throughput is computed
+    void finish(double seconds) {
+        this.seconds = seconds;
+    }
+    
+    void print(PrintStream out) {
+        out.printf("%n%-26s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "p99.9 ms", "Max ms");
+        for (Map.Entry<String, Row> entry : rows().entrySet()) {
+            Row row = entry.getValue();
+            if (row.histogram().getTotalCount() == 0) {
+                continue;
+            }
+            out.printf("%-26s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", row.label(), row.histogram().getTotalCount(),
+                    row.errors(), row.histogram().getTotalCount() / seconds, millis(row.histogram(), 50),
+                    millis(row.histogram(), 99), millis(row.histogram(), 99.9), row.histogram().getMaxValue() / 1000.0);
+        }
+    }
+    
+    void writeJson(File file, Map<String, String> params) throws IOException {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Map.Entry<String, Row> entry : rows().entrySet()) {
+            Row row = entry.getValue();
+            if (row.histogram().getTotalCount() == 0) {
+                continue;
+            }
+            String name = "loadtest." + entry.getKey();
+            results.add(result(name + ".throughput", "thrpt", params, row.histogram().getTotalCount() / seconds, "ops/s", row));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                results.add(result(name + "." + PERCENTILE_NAMES[i], "sample", params,
+                        millis(row.histogram(), PERCENTILES[i]), "ms", row));
+            }
+        }
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, results);
+    }
+    
+    // Full percentile distributions, for plotting with HdrHistogram's tools
+    void writeHistograms(File directory) throws IOException {
+        directory.mkdirs();
+        for (Map.Entry<String, Row> entry : rows().entrySet()) {
+            if (entry.getValue().histogram().getTotalCount() == 0) {
+                continue;
+            }
+            try (PrintStream out = new PrintStream(new File(directory, entry.getKey() + ".hgrm"))) {
+                entry.getValue().histogram().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+    
+    private record Row(String label, Histogram histogram, long errors) {
+    }
+    
+    // One row per endpoint plus the combined "all" row, keyed by the names used in the mix
+    private Map<String, Row> rows() {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = histograms.get(endpoint).copy();
+            long errorCount = errors.get(endpoint).sum();
+            rows.put(endpoint.key(), new Row(endpoint.label(), histogram, errorCount));
+            all.add(histogram);
+            allErrors += errorCount;
+        }
+        rows.put(ALL, new Row("all", all, allErrors));
+        return rows;
+    }
+    
+    private static Map<String, Object> result(String benchmark, String mode, Map<String, String> params,
+                                              double score, String unit, Row row) {
+        Map<String, Object> metric = new LinkedHashMap<>();
+        metric.put("score", score);
+        metric.put("scoreError", 0.0);
+        metric.put("scoreUnit", unit);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("benchmark", benchmark);
+        result.put("mode", mode);
+        result.put("params", params);
+        result.put("primaryMetric", metric);
+        result.put("requests", row.histogram().getTotalCount());
+        result.put("errors", row.errors());
+        return result;
+    }
+    
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.bookreview.bulk;
+
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.ReviewRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streams all books or reviews, optionally only those created since a point in time, as
+ * CSV or JSON Lines.
+ *
+ * Rows come from a repository Stream over a JDBC cursor inside one read-only transaction.
+ * Each entity is detached once written and the persistence context is cleared every
+ * fetch-size rows, so heap use does not grow with the size of the export. Columns match
+ * what BulkImportService reads, but the import gives every row a new id and ignores the id
+ * column: a book export imports as copies of the books, while a review export only imports
+ * correctly where its book_ids still name the same books, e.g. back into the database it came
+ * from. Reviews cannot follow their books into a database the books were imported into.
+ */
+@Service
+public class BulkExportService {
+    
+    public static final List<String> BOOK_COLUMNS = List.of("id", "title", "author", "genre", "isbn",
+            "description", "publication_year", "created_at", "review_count", "average_rating");
+    
+    public static final List<String> REVIEW_COLUMNS = List.of("id", "book_id", "reviewer_name", "rating",
+            "comment", "created_at");
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ReviewRepository reviewRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final TransactionTemplate readOnlyTransaction;
+    
+    public BulkExportService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    // Writes the books to out and returns how many were written
+    public long exportBooks(OutputStream out, DataFormat format, LocalDateTime since) throws IOException {
+        return export(out, format, BOOK_COLUMNS,
+                () -> since == null ? bookRepository.streamAll() : bookRepository.streamCreatedSince(since),
+                book -> Arrays.asList(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                        book.getIsbn(), book.getDescription(), book.getPublicationYear(), book.getCreatedAt(),
+                        book.getReviewCount(), book.getAverageRating()));
+    }
+    
+    // Writes the reviews to out and returns how many were written; the book is referenced by id
+    // only, which does not initialize the lazy association
+    public long exportReviews(OutputStream out, DataFormat format, LocalDateTime since) throws IOException {
+        return export(out, format, REVIEW_COLUMNS,
+                () -> since == null ? reviewRepository.streamAll() : reviewRepository.streamCreatedSince(since),
+                review -> Arrays.asList(review.getId(), review.getBook().getId(), review.getReviewerName(),
+                        review.getRating(), review.getComment(), review.getCreatedAt()));
+    }
+    
+    private <T> long export(OutputStream out, DataFormat format, List<String> columns,
+                            Supplier<Stream<T>> rows, Function<T, List<?>> toValues) throws IOException {
+        RowWriter writer = format.create(out, columns, objectMapper);
+        try {
+            Long written = readOnlyTransaction.execute(status -> {
+                long count = 0;
+                try (Stream<T> stream = rows.get()) {
+                    Iterator<T> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        T row = iterator.next();
+                        writer.write(toValues.apply(row));
+                        entityManager.detach(row);
+                        // Also drops the uninitialized proxies (e.g. review books) the rows referenced
+                        if (++count % BookRepository.EXPORT_FETCH_SIZE == 0) {
+                            entityManager.clear();
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            writer.flush();
+            return written == null ? 0 : written;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.bookreview.bulk;
+
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.model.Book;
+import com.bookreview.model.Genre;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.service.GenreService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams books or reviews from CSV / JSON Lines input into the database.
+ *
+ * Rows are validated against the entities' Bean Validation constraints and written in
+ * batches of bookreview.import.batch-size, each in its own transaction, with the
+ * persistence context cleared after every batch so memory use stays flat. Invalid rows are
+ * reported and skipped; a batch the database rejects is retried row by row so only the
+ * offending rows are lost.
+ */
+@Service
+public class BulkImportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${bookreview.import.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${bookreview.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+    
+    @Value("${bookreview.import.max-field-length:65536}")
+    private int maxFieldLength;
+    
+    @Value("${bookreview.import.max-record-length:262144}")
+    private int maxRecordLength;
+    
+    public BulkImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    public ImportReport importBooks(Reader input, DataFormat format) throws IOException {
+        return run(BulkImportCompletedEvent.BOOKS, input, format, this::toBook, this::writeBooks);
+    }
+    
+    public ImportReport importReviews(Reader input, DataFormat format) throws IOException {
+        return run(BulkImportCompletedEvent.REVIEWS, input, format, this::toReview, this::writeReviews);
+    }
+    
+    // A validated row waiting for its batch to be written
+    private record Pending<T>(ImportRow row, T entity) {
+    }
+    
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ImportRow row);
+    }
+    
+    // Writes a batch inside the current transaction, adding rows it had to skip to rejected
+    @FunctionalInterface
+    private interface BatchWriter<T> {
+        int write(List<Pending<T>> batch, List<ImportReport.RowError> rejected);
+    }
+    
+    private <T> ImportReport run(String entity, Reader input, DataFormat format,
+                                 RowMapper<T> mapper, BatchWriter<T> writer) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport(entity, maxReportedErrors);
+        List<Pending<T>> batch = new ArrayList<>(batchSize);
+        
+        try (RowReader reader = format.open(input, objectMapper, maxFieldLength, maxRecordLength)) {
+            ImportRow row;
+            while ((row = reader.next()) != null) {
+                report.rowRead();
+                T mapped = toValidEntity(row, mapper, report);
+                if (mapped == null) {
+                    continue;
+                }
+                batch.add(new Pending<>(row, mapped));
+                if (batch.size() == batchSize) {
+                    flushBatch(batch, mapper, writer, report);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flushBatch(batch, mapper, writer, report);
+            }
+        } finally {
+            report.finish((System.nanoTime() - start) / 1_000_000);
+            logger.info("{}", report);
+            if (report.getRowsImported() > 0) {
+                eventPublisher.publishEvent(new BulkImportCompletedEvent(entity, report.getRowsImported()));
+            }
+        }
+        return report;
+    }
+    
+    private <T> T toValidEntity(ImportRow row, RowMapper<T> mapper, ImportReport report) {
+        if (row.parseError() != null) {
+            report.reject(row.line(), row.parseError());
+            return null;
+        }
+        T entity;
+        try {
+            entity = mapper.map(row);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            report.reject(row.line(), e.getMessage());
+            return null;
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            report.reject(row.line(), violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+        return entity;
+    }
+    
+    private <T> void flushBatch(List<Pending<T>> batch, RowMapper<T> mapper, BatchWriter<T> writer,
+                                ImportReport report) {
+        try {
+            writeInTransaction(batch, writer, report);
+        } catch (RuntimeException batchFailure) {
+            logger.debug("Batch of {} rows failed, retrying row by row", batch.size(), batchFailure);
+            // The failed attempt left generated ids on the entities, so every row is mapped again
+            for (Pending<T> pending : batch) {
+                try {
+                    List<Pending<T>> single = List.of(new Pending<>(pending.row(), mapper.map(pending.row())));
+                    writeInTransaction(single, writer, report);
+                } catch (RuntimeException rowFailure) {
+                    report.reject(pending.row().line(), NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+    
+    // Rows skipped by the writer only count once the transaction commits, so a batch that is
+    // retried row by row does not report them twice
+    private <T> void writeInTransaction(List<Pending<T>> batch, BatchWriter<T> writer, ImportReport report) {
+        List<ImportReport.RowError> rejected = new ArrayList<>();
+        Integer written = transactionTemplate.execute(status -> {
+            rejected.clear();
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            int count = writer.write(batch, rejected);
+            entityManager.flush();
+            entityManager.clear();
+            return count;
+        });
+        report.rowsImported(written == null ? 0 : written);
+        rejected.forEach(error -> report.reject(error.line(), error.message()));
+    }
+    
+    private Book toBook(ImportRow row) {
+        Book book = new Book();
+        book.setTitle(row.get("title"));
+        book.setAuthor(row.get("author"));
+        book.setGenre(row.get("genre"));
+        book.setIsbn(row.get("isbn"));
+        book.setDescription(row.get("description"));
+        book.setPublicationYear(parseInteger(row, "publication_year"));
+        LocalDateTime createdAt = parseDateTime(row, "created_at");
+        if (createdAt != null) {
+            book.setCreatedAt(createdAt);
+        }
+        return book;
+    }
+    
+    private Review toReview(ImportRow row) {
+        if (parseLong(row, "book_id") == null) {
+            throw new IllegalArgumentException("book_id is required");
+        }
+        Review review = new Review();
+        review.setReviewerName(row.get("reviewer_name"));
+        review.setRating(parseInteger(row, "rating"));
+        review.setComment(row.get("comment"));
+        LocalDateTime createdAt = parseDateTime(row, "created_at");
+        if (createdAt != null) {
+            review.setCreatedAt(createdAt);
+        }
+        return review;
+    }
+    
+    // Books are linked to their genre here, each genre looked up once per batch; the genre
+    // book counts are recomputed by GenreService once the import completes
+    private int writeBooks(List<Pending<Book>> batch, List<ImportReport.RowError> rejected) {
+        Map<String, Genre> genres = new HashMap<>();
+        for (Pending<Book> pending : batch) {
+            Book book = pending.entity();
+            String normalized = Genre.normalize(book.getGenre());
+            if (normalized != null) {
+                book.setGenreRef(genres.computeIfAbsent(normalized, key -> genreService.resolve(book.getGenre())));
+            }
+            entityManager.persist(book);
+        }
+        return batch.size();
+    }
+    
+    // Reviews reference their book by id; rows naming a missing book are rejected, and the
+    // rating aggregates of each book are adjusted once per batch rather than once per review
+    private int writeReviews(List<Pending<Review>> batch, List<ImportReport.RowError> rejected) {
+        Set<Long> bookIds = batch.stream()
+                .map(pending -> parseLong(pending.row(), "book_id"))
+                .collect(Collectors.toSet());
+        Set<Long> existing = new HashSet<>(bookRepository.findExistingIds(bookIds));
+        
+        Map<Long, int[]> histograms = new HashMap<>();
+        int written = 0;
+        for (Pending<Review> pending : batch) {
+            Long bookId = parseLong(pending.row(), "book_id");
+            if (!existing.contains(bookId)) {
+                rejected.add(new ImportReport.RowError(pending.row().line(), "book " + bookId + " does not exist"));
+                continue;
+            }
+            Review review = pending.entity();
+            review.setBook(entityManager.getReference(Book.class, bookId));
+            entityManager.persist(review);
+            histograms.computeIfAbsent(bookId, id -> new int[5])[review.getRating() - 1]++;
+            written++;
+        }
+        entityManager.flush();
+        
+        histograms.forEach(bookRepository::adjustRatingAggregates);
+        return written;
+    }
+    
+    private static Integer parseInteger(ImportRow row, String field) {
+        String value = row.get(field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + value);
+        }
+    }
+    
+    private static Long parseLong(ImportRow row, String field) {
+        String value = row.get(field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + value);
+        }
+    }
+    
+    private static LocalDateTime parseDateTime(ImportRow row, String field) {
+        String value = row.get(field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " is not an ISO date-time: " + value);
+        }
+    }
+}
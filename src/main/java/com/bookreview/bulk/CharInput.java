@@ -0,0 +1,74 @@
+package com.bookreview.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Buffered character input for the row readers. Line breaks (\n, \r\n or \r) are all read as
+ * \n, and a byte order mark at the start of the input, as spreadsheet tools write, is skipped.
+ */
+final class CharInput implements Closeable {
+    
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    
+    private final Reader reader;
+    
+    private final char[] buffer = new char[8192];
+    
+    private int position;
+    
+    private int limit;
+    
+    CharInput(Reader reader) throws IOException {
+        this.reader = reader;
+        if (peek() == BYTE_ORDER_MARK) {
+            position++;
+        }
+    }
+    
+    // The next character, or -1 at the end of the input
+    int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (c == '\r') {
+            if (peek() == '\n') {
+                position++;
+            }
+            return '\n';
+        }
+        return c;
+    }
+    
+    int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+    
+    // Discards the rest of the current line, including its line break
+    void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && c != '\n');
+    }
+    
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
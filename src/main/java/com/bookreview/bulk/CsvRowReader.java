@@ -0,0 +1,143 @@
+package com.bookreview.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV reader: the first record is the header, fields may be quoted, and quoted
+ * fields may contain commas, doubled quotes and line breaks.
+ *
+ * Records are read up to maxRecordLength characters and fields up to maxFieldLength, so a quote
+ * left open cannot pull the rest of the upload into one field. A record over either limit is
+ * rejected, and reading resumes on the line after the one where the limit was reached.
+ */
+public class CsvRowReader implements RowReader {
+    
+    private final CharInput input;
+    
+    private final int maxFieldLength;
+    
+    private final int maxRecordLength;
+    
+    private final List<String> header = new ArrayList<>();
+    
+    private long line;
+    
+    // Why the last record read could not be read whole, or null
+    private String recordError;
+    
+    // Why the header could not be read, reported in place of the first row
+    private ImportRow headerError;
+    
+    public CsvRowReader(Reader reader, int maxFieldLength, int maxRecordLength) throws IOException {
+        this.input = new CharInput(reader);
+        this.maxFieldLength = maxFieldLength;
+        this.maxRecordLength = maxRecordLength;
+        List<String> names = readRecord();
+        if (recordError != null) {
+            headerError = ImportRow.unreadable(1, "header " + recordError);
+        } else if (names != null) {
+            for (String name : names) {
+                header.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+    
+    @Override
+    public ImportRow next() throws IOException {
+        // Without column names none of the rows can be read, so the header error ends the input
+        if (headerError != null) {
+            ImportRow error = headerError;
+            headerError = null;
+            return error;
+        }
+        if (header.isEmpty()) {
+            return null;
+        }
+        List<String> values;
+        long recordLine;
+        do {
+            recordLine = line + 1;
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+            if (recordError != null) {
+                return ImportRow.unreadable(recordLine, recordError);
+            }
+        } while (values.size() == 1 && values.get(0).isEmpty());
+        
+        if (values.size() != header.size()) {
+            return ImportRow.unreadable(recordLine,
+                    "expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i), values.get(i));
+        }
+        return ImportRow.of(recordLine, fields);
+    }
+    
+    // One record, which may span several physical lines when a quoted field contains line breaks;
+    // recordError is set instead when it exceeds a length limit
+    private List<String> readRecord() throws IOException {
+        recordError = null;
+        int c = input.read();
+        if (c < 0) {
+            return null;
+        }
+        line++;
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        long quoteLine = 0;
+        int recordLength = 0;
+        for (; c >= 0; c = input.read()) {
+            if (c == '\n') {
+                if (!quoted) {
+                    break;
+                }
+                line++;
+                field.append('\n');
+            } else if (quoted) {
+                if (c == '"') {
+                    if (input.peek() == '"') {
+                        field.append('"');
+                        input.read();
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                quoteLine = line;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append((char) c);
+            }
+            if (++recordLength > maxRecordLength || field.length() > maxFieldLength) {
+                recordError = (recordLength > maxRecordLength ? "record longer than " + maxRecordLength
+                        : "field longer than " + maxFieldLength) + " characters"
+                        + (quoted ? " (is the quote opened on line " + quoteLine + " closed?)" : "");
+                input.skipLine();
+                return values;
+            }
+        }
+        values.add(field.toString());
+        return values;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
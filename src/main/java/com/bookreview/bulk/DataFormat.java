@@ -0,0 +1,56 @@
+package com.bookreview.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * File formats understood by bulk import and export.
+ */
+public enum DataFormat {
+    CSV("text/csv", "csv"),
+    JSONL("application/x-ndjson", "jsonl");
+    
+    private final String contentType;
+    
+    private final String extension;
+    
+    DataFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    // A JSON Lines record is one line, so only maxRecordLength applies to it
+    public RowReader open(Reader reader, ObjectMapper objectMapper, int maxFieldLength, int maxRecordLength) throws IOException {
+        return this == CSV ? new CsvRowReader(reader, maxFieldLength, maxRecordLength)
+                : new JsonLinesRowReader(reader, objectMapper, maxRecordLength);
+    }
+    
+    public RowWriter create(OutputStream out, List<String> columns, ObjectMapper objectMapper) throws IOException {
+        return this == CSV ? new CsvRowWriter(out, columns) : new JsonLinesRowWriter(out, columns, objectMapper);
+    }
+    
+    // Accepts a format name ("csv", "jsonl", "ndjson") or a file name with one of those extensions
+    public static DataFormat fromName(String name) {
+        String value = name.toLowerCase(Locale.ROOT);
+        if (value.equals("csv") || value.endsWith(".csv")) {
+            return CSV;
+        }
+        if (value.equals("jsonl") || value.equals("ndjson") || value.endsWith(".jsonl") || value.endsWith(".ndjson")) {
+            return JSONL;
+        }
+        throw new IllegalArgumentException("Unsupported format: " + name);
+    }
+}
@@ -0,0 +1,372 @@
+package com.bookreview.bulk;
+
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.service.GenreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes a synthetic dataset of any size straight into the books and reviews tables, for load
+ * tests and benchmarks. The same spec always produces the same rows, whatever the number of
+ * threads: every book draws from random streams seeded by its own index.
+ *
+ * The number of reviews per book follows a Zipf distribution over a shuffled popularity rank,
+ * genres are Zipf-skewed too, each book's ratings scatter around a quality of its own, and
+ * created_at spreads books and their reviews over ten years. Books are written with their
+ * rating aggregates already summed, in chunks run in parallel, as JDBC batches of
+ * bookreview.generate.batch-size rows in one transaction each. The id ranges are reserved in
+ * the sequences up front, so the application can keep writing meanwhile.
+ */
+@Service
+public class DataGenerator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerator.class);
+    
+    // Most popular first; genres are drawn with Zipf weights in this order
+    public static final String[] GENRES = {
+        "Classic Fiction", "Fantasy", "Mystery", "Romance", "Science Fiction", "Historical Fiction",
+        "Thriller", "Biography", "Young Adult", "Horror", "Dystopian Fiction", "Poetry"
+    };
+    
+    private static final String[] WORDS = {
+        "Shadow", "River", "Garden", "Winter", "Empire", "Silent", "Golden", "Storm",
+        "Journey", "Secret", "Ocean", "Crown", "Forest", "Letters", "Night", "Glass",
+        "Summer", "Stone", "Harbor", "Memory", "Wolves", "Daughter", "Mountain", "Fire"
+    };
+    
+    private static final String[] FIRST_NAMES = {
+        "Anna", "James", "Maria", "David", "Sofia", "Omar", "Chen", "Grace",
+        "Lucas", "Amara", "Ivan", "Priya", "Hannah", "Mateo", "Yuki", "Noah"
+    };
+    
+    private static final String[] SURNAMES = {
+        "Austen", "Orwell", "Tolstoy", "Morrison", "Achebe", "Woolf", "Calvino", "Murakami",
+        "Garcia", "Okafor", "Lindqvist", "Haddad", "Novak", "Kowalski", "Ferrante", "Adichie"
+    };
+    
+    private static final String BOOK_INSERT = "INSERT INTO books (id, title, author, genre, genre_id, isbn, description, " +
+            "publication_year, created_at, updated_at, version, review_count, rating_sum, " +
+            "rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String REVIEW_INSERT = "INSERT INTO reviews (id, book_id, reviewer_name, rating, comment, " +
+            "created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+    
+    // Reviews per book fall off as 1 / rank^REVIEW_SKEW, genre popularity as 1 / rank^GENRE_SKEW
+    private static final double REVIEW_SKEW = 1.0;
+    
+    private static final double GENRE_SKEW = 1.1;
+    
+    // Books are written in chunks of this many, each chunk by one thread
+    private static final int CHUNK_SIZE = 1000;
+    
+    // The allocationSize of the book and review sequences, restored after a reservation
+    private static final int ID_ALLOCATION_SIZE = 50;
+    
+    // Books are created over these ten years, in id order; their reviews follow until the end
+    private static final LocalDateTime FIRST_CREATED = LocalDateTime.of(2016, 1, 1, 0, 0);
+    
+    private static final LocalDateTime LAST_CREATED = LocalDateTime.of(2025, 12, 31, 0, 0);
+    
+    private static final long CREATED_SPAN_SECONDS = Duration.between(FIRST_CREATED, LAST_CREATED).toSeconds();
+    
+    private static final double[] GENRE_CUMULATIVE = cumulativeZipf(GENRES.length, GENRE_SKEW);
+    
+    // Stream ids; each book has one per purpose, so its ratings can be drawn twice identically
+    private static final int RATINGS = 1;
+    
+    private static final int CONTENT = 2;
+    
+    private static final int REVIEWS = 3;
+    
+    /** What to generate: books, the mean number of reviews per book, and the seed. */
+    public record Spec(int books, int reviewsPerBook, long seed) {
+    }
+    
+    /** The ids written: books firstBookId onwards, reviews firstReviewId onwards. */
+    public record GeneratedDataset(long firstBookId, int books, long firstReviewId, long reviews, long elapsedMillis) {
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    // Held while a sequence's increment is raised for a reservation
+    private final Object sequenceLock = new Object();
+    
+    @Value("${bookreview.generate.threads:4}")
+    private int threads;
+    
+    @Value("${bookreview.generate.batch-size:1000}")
+    private int batchSize;
+    
+    public DataGenerator(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    public GeneratedDataset generate(Spec spec) throws InterruptedException {
+        long start = System.nanoTime();
+        int[] reviewCounts = reviewCounts(spec);
+        long[] firstReviewOffsets = new long[spec.books() + 1];
+        for (int i = 0; i < spec.books(); i++) {
+            firstReviewOffsets[i + 1] = firstReviewOffsets[i] + reviewCounts[i];
+        }
+        long totalReviews = firstReviewOffsets[spec.books()];
+        long firstBookId = reserveIds("books_seq", spec.books());
+        long firstReviewId = reserveIds("reviews_seq", totalReviews);
+        Long[] genreIds = Arrays.stream(GENRES).map(name -> genreService.resolve(name).getId()).toArray(Long[]::new);
+        logger.info("Generating {} books with {} reviews (seed {}) on {} threads",
+                spec.books(), totalReviews, spec.seed(), threads);
+        
+        int chunks = (spec.books() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        AtomicInteger chunksDone = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int first = chunk * CHUNK_SIZE;
+                int last = Math.min(spec.books(), first + CHUNK_SIZE);
+                futures.add(executor.submit(() -> {
+                    writeChunk(spec, first, last, firstBookId, firstReviewId, firstReviewOffsets, genreIds);
+                    int done = chunksDone.incrementAndGet();
+                    if (done % Math.max(1, chunks / 10) == 0) {
+                        logger.info("Generated {} of {} book chunks", done, chunks);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Data generation failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // One event once both tables are written: everything derived reloads from the books
+        // table, whose aggregates already include the reviews, and the genre counts are recomputed
+        if (spec.books() > 0) {
+            eventPublisher.publishEvent(new BulkImportCompletedEvent(BulkImportCompletedEvent.BOOKS, spec.books()));
+        }
+        GeneratedDataset dataset = new GeneratedDataset(firstBookId, spec.books(), firstReviewId, totalReviews,
+                (System.nanoTime() - start) / 1_000_000);
+        logger.info("Generated {} books and {} reviews in {} ms", dataset.books(), dataset.reviews(), dataset.elapsedMillis());
+        return dataset;
+    }
+    
+    // Expected reviews of the book at each popularity rank, rounded up or down at random so the
+    // total stays near books x reviewsPerBook, then shuffled so popularity is unrelated to age
+    private static int[] reviewCounts(Spec spec) {
+        int[] counts = new int[spec.books()];
+        if (counts.length == 0) {
+            return counts;
+        }
+        double harmonic = 0;
+        for (int rank = 1; rank <= counts.length; rank++) {
+            harmonic += 1 / Math.pow(rank, REVIEW_SKEW);
+        }
+        double total = (double) spec.books() * spec.reviewsPerBook();
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        for (int rank = 1; rank <= counts.length; rank++) {
+            double expected = total / (harmonic * Math.pow(rank, REVIEW_SKEW));
+            int whole = (int) expected;
+            counts[rank - 1] = whole + (random.nextDouble() < expected - whole ? 1 : 0);
+        }
+        for (int i = counts.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = counts[i];
+            counts[i] = counts[j];
+            counts[j] = swap;
+        }
+        return counts;
+    }
+    
+    // Takes count ids as one block: a single NEXT VALUE FOR while the increment is raised to
+    // count, so the block cannot overlap ids Hibernate draws meanwhile, which come from their
+    // own NEXT VALUE FOR
+    private long reserveIds(String sequence, long count) {
+        synchronized (sequenceLock) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + Math.max(count, ID_ALLOCATION_SIZE));
+            try {
+                return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+            } finally {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + ID_ALLOCATION_SIZE);
+            }
+        }
+    }
+    
+    private void writeChunk(Spec spec, int first, int last, long firstBookId, long firstReviewId,
+                            long[] firstReviewOffsets, Long[] genreIds) {
+        List<Object[]> books = new ArrayList<>(last - first);
+        for (int index = first; index < last; index++) {
+            int reviews = (int) (firstReviewOffsets[index + 1] - firstReviewOffsets[index]);
+            books.add(book(spec, index, firstBookId + index, reviews, genreIds));
+        }
+        for (int from = 0; from < books.size(); from += batchSize) {
+            insert(BOOK_INSERT, books.subList(from, Math.min(books.size(), from + batchSize)));
+        }
+        
+        List<Object[]> reviews = new ArrayList<>(batchSize);
+        for (int index = first; index < last; index++) {
+            int count = (int) (firstReviewOffsets[index + 1] - firstReviewOffsets[index]);
+            long bookId = firstBookId + index;
+            SplittableRandom ratings = random(spec, index, RATINGS);
+            SplittableRandom text = random(spec, index, REVIEWS);
+            double quality = quality(ratings);
+            LocalDateTime bookCreated = createdAt(spec, index, random(spec, index, CONTENT));
+            for (int r = 0; r < count; r++) {
+                reviews.add(review(firstReviewId + firstReviewOffsets[index] + r, bookId, rating(ratings, quality),
+                        bookCreated, text));
+                if (reviews.size() == batchSize) {
+                    insert(REVIEW_INSERT, reviews);
+                    reviews.clear();
+                }
+            }
+        }
+        if (!reviews.isEmpty()) {
+            insert(REVIEW_INSERT, reviews);
+        }
+    }
+    
+    private void insert(String sql, List<Object[]> rows) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, rows));
+    }
+    
+    // The book row, with the rating aggregates of the reviews writeChunk draws for it later from
+    // the same ratings stream
+    private static Object[] book(Spec spec, int index, long id, int reviewCount, Long[] genreIds) {
+        SplittableRandom ratings = random(spec, index, RATINGS);
+        double quality = quality(ratings);
+        int[] histogram = new int[5];
+        long ratingSum = 0;
+        for (int r = 0; r < reviewCount; r++) {
+            int rating = rating(ratings, quality);
+            histogram[rating - 1]++;
+            ratingSum += rating;
+        }
+        
+        SplittableRandom content = random(spec, index, CONTENT);
+        LocalDateTime created = createdAt(spec, index, content);
+        int genre = zipf(content, GENRE_CUMULATIVE);
+        String title = pick(content, WORDS) + " " + pick(content, WORDS) + (content.nextInt(3) == 0 ? " of the " + pick(content, WORDS) : "");
+        String author = pick(content, FIRST_NAMES) + " " + pick(content, SURNAMES);
+        String isbn = String.format("978-%d-%04d-%04d-%d", content.nextInt(10), content.nextInt(10_000),
+                content.nextInt(10_000), content.nextInt(10));
+        String description = prose(content, title + ", a " + GENRES[genre].toLowerCase() + " novel by " + author + ".",
+                200 + content.nextInt(1301));
+        // Mostly recent publications, with a long tail of older ones
+        int publicationYear = Math.max(1800, 2025 - (int) exponential(content, 25));
+        Timestamp createdAt = Timestamp.valueOf(created);
+        return new Object[] { id, title, author, GENRES[genre], genreIds[genre], isbn, description, publicationYear,
+                createdAt, createdAt, reviewCount, ratingSum,
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4] };
+    }
+    
+    private static Object[] review(long id, long bookId, int rating, LocalDateTime bookCreated, SplittableRandom text) {
+        String reviewer = pick(text, FIRST_NAMES) + " " + pick(text, SURNAMES).charAt(0) + ".";
+        // Most reviews are short; a few run to the 2000 character limit
+        int length = (int) Math.min(2000, 40 + exponential(text, 350));
+        String comment = prose(text, rating + " stars.", length);
+        // Reviews cluster soon after the book appears and thin out over the following years
+        double delay = Math.pow(text.nextDouble(), 2);
+        long seconds = (long) (delay * Duration.between(bookCreated, LAST_CREATED).toSeconds());
+        Timestamp createdAt = Timestamp.valueOf(bookCreated.plusSeconds(seconds));
+        return new Object[] { id, bookId, reviewer, rating, comment, createdAt, createdAt };
+    }
+    
+    // The creation time is drawn first from the book's content stream, so its reviews can re-derive it
+    private static LocalDateTime createdAt(Spec spec, int index, SplittableRandom content) {
+        long slot = CREATED_SPAN_SECONDS / Math.max(1, spec.books());
+        return FIRST_CREATED.plusSeconds(slot * index + (slot > 1 ? content.nextLong(slot) : 0));
+    }
+    
+    // A book's mean rating: most books are liked, a few are not
+    private static double quality(SplittableRandom ratings) {
+        return Math.clamp(3.9 + gaussian(ratings) * 0.7, 1.2, 4.9);
+    }
+    
+    private static int rating(SplittableRandom ratings, double quality) {
+        return Math.clamp(Math.round(quality + gaussian(ratings)), 1, 5);
+    }
+    
+    private static SplittableRandom random(Spec spec, int index, int stream) {
+        return new SplittableRandom(mix(spec.seed() * 31 + stream) ^ mix(index));
+    }
+    
+    // SplitMix64 finalizer, so neighbouring seeds give unrelated streams
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller; 1 - nextDouble() is never 0
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+    
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+    
+    private static double[] cumulativeZipf(int size, double skew) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1 / Math.pow(rank, skew);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+    
+    private static int zipf(SplittableRandom random, double[] cumulative) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+    
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    private static String prose(SplittableRandom random, String start, int length) {
+        StringBuilder text = new StringBuilder(length + 16).append(start);
+        while (text.length() < length) {
+            text.append(' ').append(pick(random, WORDS).toLowerCase());
+        }
+        text.setLength(Math.min(text.length(), length));
+        return text.toString();
+    }
+}
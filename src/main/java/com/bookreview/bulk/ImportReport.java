@@ -0,0 +1,87 @@
+package com.bookreview.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one import run. Only the first maxErrors row errors are kept, so a file full
+ * of bad rows cannot exhaust memory; rowsRejected still counts all of them.
+ */
+public class ImportReport {
+    
+    public record RowError(long line, String message) {
+    }
+    
+    private final String entity;
+    
+    private final int maxErrors;
+    
+    private long rowsRead;
+    
+    private long rowsImported;
+    
+    private long rowsRejected;
+    
+    private long durationMillis;
+    
+    private final List<RowError> errors = new ArrayList<>();
+    
+    public ImportReport(String entity, int maxErrors) {
+        this.entity = entity;
+        this.maxErrors = maxErrors;
+    }
+    
+    void rowRead() {
+        rowsRead++;
+    }
+    
+    void rowsImported(int count) {
+        rowsImported += count;
+    }
+    
+    void reject(long line, String message) {
+        rowsRejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        }
+    }
+    
+    void finish(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+    
+    public String getEntity() {
+        return entity;
+    }
+    
+    public long getRowsRead() {
+        return rowsRead;
+    }
+    
+    public long getRowsImported() {
+        return rowsImported;
+    }
+    
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+    
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+    
+    public boolean isErrorsTruncated() {
+        return rowsRejected > errors.size();
+    }
+    
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+    
+    @Override
+    public String toString() {
+        return "Imported " + rowsImported + " of " + rowsRead + " " + entity + " rows in " + durationMillis
+                + " ms (" + rowsRejected + " rejected)";
+    }
+}
@@ -0,0 +1,23 @@
+package com.bookreview.bulk;
+
+import java.util.Map;
+
+/**
+ * One input record. Field names are lower-case column names (CSV header or JSON keys);
+ * parseError is set instead of fields when the record itself could not be read.
+ */
+public record ImportRow(long line, Map<String, String> fields, String parseError) {
+    
+    public static ImportRow of(long line, Map<String, String> fields) {
+        return new ImportRow(line, fields, null);
+    }
+    
+    public static ImportRow unreadable(long line, String parseError) {
+        return new ImportRow(line, Map.of(), parseError);
+    }
+    
+    public String get(String field) {
+        String value = fields.get(field);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,84 @@
+package com.bookreview.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JSON Lines reader: one JSON object per line, blank lines ignored. Lines longer than
+ * maxLineLength characters are rejected without being held in memory.
+ */
+public class JsonLinesRowReader implements RowReader {
+    
+    private final CharInput input;
+    
+    private final ObjectMapper objectMapper;
+    
+    private final int maxLineLength;
+    
+    private long line;
+    
+    public JsonLinesRowReader(Reader reader, ObjectMapper objectMapper, int maxLineLength) throws IOException {
+        this.input = new CharInput(reader);
+        this.objectMapper = objectMapper;
+        this.maxLineLength = maxLineLength;
+    }
+    
+    @Override
+    public ImportRow next() throws IOException {
+        String text;
+        do {
+            if (input.peek() < 0) {
+                return null;
+            }
+            line++;
+            text = readLine();
+            if (text == null) {
+                return ImportRow.unreadable(line, "line longer than " + maxLineLength + " characters");
+            }
+        } while (text.isBlank());
+        
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            return ImportRow.unreadable(line, "invalid JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            return ImportRow.unreadable(line, "expected a JSON object");
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            JsonNode value = entry.getValue();
+            fields.put(entry.getKey().toLowerCase(Locale.ROOT), value.isNull() ? null : value.asText());
+        }
+        return ImportRow.of(line, fields);
+    }
+    
+    // The rest of the current line, or null when it is too long (it is skipped then)
+    private String readLine() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int c = input.read(); c >= 0 && c != '\n'; c = input.read()) {
+            if (text.length() == maxLineLength) {
+                input.skipLine();
+                return null;
+            }
+            text.append((char) c);
+        }
+        return text.toString();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
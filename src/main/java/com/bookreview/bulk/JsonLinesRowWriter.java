@@ -0,0 +1,57 @@
+package com.bookreview.bulk;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * JSON Lines writer: one object per record, keyed by column name. Numbers are written as
+ * JSON numbers, everything else as strings.
+ */
+public class JsonLinesRowWriter implements RowWriter {
+    
+    private final JsonGenerator generator;
+    
+    private final List<String> columns;
+    
+    public JsonLinesRowWriter(OutputStream out, List<String> columns, ObjectMapper objectMapper) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.setRootValueSeparator(null);
+        this.columns = columns;
+    }
+    
+    @Override
+    public void write(List<?> values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.size(); i++) {
+            generator.writeFieldName(columns.get(i));
+            Object value = values.get(i);
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Long number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Integer number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Double number) {
+                generator.writeNumber(number);
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
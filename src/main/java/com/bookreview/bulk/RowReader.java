@@ -0,0 +1,13 @@
+package com.bookreview.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams records from an import file one at a time, so memory use does not depend on file size.
+ */
+public interface RowReader extends Closeable {
+    
+    // The next record, or null at the end of the input
+    ImportRow next() throws IOException;
+}
@@ -0,0 +1,16 @@
+package com.bookreview.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes records to an export stream as they are produced. Each record holds one value per
+ * column, in the column order the writer was created with.
+ */
+public interface RowWriter extends Closeable {
+    
+    void write(List<?> values) throws IOException;
+    
+    void flush() throws IOException;
+}
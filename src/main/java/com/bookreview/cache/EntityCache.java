@@ -0,0 +1,44 @@
+package com.bookreview.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded read-through cache of entities by id.
+ *
+ * Cached entities are detached: callers may read their basic properties and eagerly
+ * fetched associations but must not navigate lazy ones, and must not modify them.
+ * Absent ids are not cached, so a lookup for a missing entity always reaches the database.
+ */
+public class EntityCache<T> {
+    
+    private final Cache<Long, T> cache;
+    
+    public EntityCache(Cache<Long, T> cache) {
+        this.cache = cache;
+    }
+    
+    // Return the cached entity or load it; a null result from the loader is not cached
+    public T get(Long id, Function<Long, T> loader) {
+        return cache.get(id, loader);
+    }
+    
+    public boolean contains(Long id) {
+        return cache.getIfPresent(id) != null;
+    }
+    
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+    
+    // Drop every cached entity matching the predicate, e.g. all reviews of a deleted book
+    public void invalidateIf(Predicate<T> predicate) {
+        cache.asMap().values().removeIf(predicate);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,99 @@
+package com.bookreview.cache;
+
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.event.RatingAggregatesRepairedEvent;
+import com.bookreview.event.ReviewChangedEvent;
+import com.bookreview.model.Book;
+import com.bookreview.model.EntityVersion;
+import com.bookreview.model.Review;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.service.BookPageKey;
+import com.bookreview.service.KeysetPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+/**
+ * Evicts exactly the cache entries a committed write made stale, and forgets the loads of the
+ * same entries still in flight, so reads after the commit do not share a load that began before it.
+ */
+@Component
+public class EntityCacheInvalidator {
+    
+    @Autowired
+    private EntityCache<Book> bookCache;
+    
+    @Autowired
+    private EntityCache<Review> reviewCache;
+    
+    @Autowired
+    private FragmentCache fragmentCache;
+    
+    @Autowired
+    private SingleFlight<Long, Optional<EntityVersion>> bookVersionLoads;
+    
+    @Autowired
+    private SingleFlight<BookPageKey, KeysetPage<Review>> bookReviewPageLoads;
+    
+    @Autowired
+    private SingleFlight<BookPageKey, KeysetPage<ReviewSummary>> bookReviewSummaryPageLoads;
+    
+    // Cached reviews carry their book, so they go stale when the book changes or is deleted
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        bookCache.invalidate(event.bookId());
+        reviewCache.invalidateIf(review -> event.bookId().equals(review.getBook().getId()));
+        invalidateFragments(event.bookId());
+        forgetLoads(event.bookId());
+    }
+    
+    // A review write also changes the rating aggregates of its book, which the
+    // book's other cached reviews carry as well
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        reviewCache.invalidate(event.reviewId());
+        reviewCache.invalidateIf(review -> event.bookId().equals(review.getBook().getId()));
+        bookCache.invalidate(event.bookId());
+        invalidateFragments(event.bookId());
+        forgetLoads(event.bookId());
+    }
+    
+    // Imports skip the per-entity events; imported reviews change the aggregates of many books
+    @EventListener
+    public void onBulkImportCompleted(BulkImportCompletedEvent event) {
+        invalidateAll();
+    }
+    
+    // The repair job does not say which books it corrected either
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingAggregatesRepaired(RatingAggregatesRepairedEvent event) {
+        if (event.booksUpdated() > 0) {
+            invalidateAll();
+        }
+    }
+    
+    private void invalidateAll() {
+        bookCache.invalidateAll();
+        reviewCache.invalidateAll();
+        fragmentCache.invalidateAll();
+        bookVersionLoads.forgetAll();
+        bookReviewPageLoads.forgetAll();
+        bookReviewSummaryPageLoads.forgetAll();
+    }
+    
+    // The book's own fragments, and those not tied to one book (the home page's recent
+    // activity), which may show it
+    private void invalidateFragments(Long bookId) {
+        fragmentCache.invalidateIf(key -> key.bookId() == null || bookId.equals(key.bookId()));
+    }
+    
+    private void forgetLoads(Long bookId) {
+        bookVersionLoads.forgetIf(bookId::equals);
+        bookReviewPageLoads.forgetIf(key -> bookId.equals(key.bookId()));
+        bookReviewSummaryPageLoads.forgetIf(key -> bookId.equals(key.bookId()));
+    }
+}
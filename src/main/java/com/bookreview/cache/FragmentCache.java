@@ -0,0 +1,54 @@
+package com.bookreview.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Rendered HTML fragments, bounded by their total size in memory.
+ *
+ * A key carries the stamp (e.g. the book version) of the data the fragment was rendered
+ * from, so a changed entity is never served from an older entry; EntityCacheInvalidator
+ * still drops a book's entries once a write commits, so they do not occupy the budget
+ * until they are evicted.
+ */
+public class FragmentCache {
+    
+    // Rough per-entry overhead of the key and the cache's own bookkeeping
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    
+    /**
+     * @param fragment template and fragment name, e.g. "books/view::bookDetails"
+     * @param bookId   the book the fragment shows, or null for fragments not tied to one book
+     * @param stamp    changes whenever the data behind the fragment does
+     * @param locale   language tag the fragment was rendered for (dates are localized)
+     */
+    public record Key(String fragment, Long bookId, String stamp, String locale) {
+    }
+    
+    private final Cache<Key, String> cache;
+    
+    public FragmentCache(Cache<Key, String> cache) {
+        this.cache = cache;
+    }
+    
+    // Approximate heap footprint of an entry; a String holds up to two bytes per char
+    public static int weigh(Key key, String html) {
+        return ENTRY_OVERHEAD_BYTES + 2 * (html.length() + key.fragment().length() + key.stamp().length());
+    }
+    
+    // Return the cached HTML or render and cache it; concurrent requests for a missing key wait
+    // for a single rendering
+    public String get(Key key, Function<Key, String> renderer) {
+        return cache.get(key, renderer);
+    }
+    
+    public void invalidateIf(Predicate<Key> predicate) {
+        cache.asMap().keySet().removeIf(predicate);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,132 @@
+package com.bookreview.cache;
+
+import com.bookreview.config.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load on its own thread,
+ * and callers asking for the key while it runs wait for its result, or its exception, instead of
+ * running it again. Nothing is kept once a load completes, so this is not a cache.
+ *
+ * Each load has a deadline of timeout from its start. Waiters give up at the deadline with a
+ * QueryTimeoutException, and callers arriving after it start a load of their own rather than
+ * join the stuck one.
+ */
+public class SingleFlight<K, V> {
+    
+    private record Flight<V>(CompletableFuture<V> result, long deadline) {
+    }
+    
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    
+    private final String name;
+    
+    private final boolean enabled;
+    
+    private final Duration timeout;
+    
+    private final Counter loadedCounter;
+    
+    private final Counter coalescedCounter;
+    
+    private final Counter timedOutCounter;
+    
+    public SingleFlight(String name, boolean enabled, Duration timeout, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.loadedCounter = requests(meterRegistry, name, "loaded");
+        this.coalescedCounter = requests(meterRegistry, name, "coalesced");
+        this.timedOutCounter = requests(meterRegistry, name, "timed_out");
+    }
+    
+    private static Counter requests(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("bookreview.single.flight.requests")
+                .description("Reads by whether they ran their own load, shared one in flight or gave up waiting")
+                .tag("flight", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    // A caller whose reads are pinned to the primary (read-your-writes) always loads on its own,
+    // since the load in flight may be reading the replica
+    public V load(K key, Supplier<V> loader) {
+        if (!enabled || ReadWriteRoutingDataSource.readsFromPrimary()) {
+            loadedCounter.increment();
+            return loader.get();
+        }
+        Flight<V> own = new Flight<>(new CompletableFuture<>(), System.nanoTime() + timeout.toNanos());
+        while (true) {
+            Flight<V> current = flights.putIfAbsent(key, own);
+            if (current == null) {
+                return lead(key, own, loader);
+            }
+            if (System.nanoTime() - current.deadline() < 0) {
+                return await(key, current);
+            }
+            if (flights.replace(key, current, own)) {
+                return lead(key, own, loader);
+            }
+        }
+    }
+    
+    // Let the next caller of each matching key start a fresh load, e.g. after a write made the
+    // loads in flight stale; their current waiters still get the old result
+    public void forgetIf(Predicate<? super K> predicate) {
+        flights.keySet().removeIf(predicate);
+    }
+    
+    public void forgetAll() {
+        flights.clear();
+    }
+    
+    private V lead(K key, Flight<V> own, Supplier<V> loader) {
+        loadedCounter.increment();
+        try {
+            V value = loader.get();
+            flights.remove(key, own);
+            own.result().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, own);
+            own.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private V await(K key, Flight<V> flight) {
+        try {
+            V value = flight.result().get(Math.max(0, flight.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+            coalescedCounter.increment();
+            return value;
+        } catch (ExecutionException e) {
+            coalescedCounter.increment();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            timedOutCounter.increment();
+            throw new QueryTimeoutException("The " + name + " load of " + key + " did not complete within "
+                    + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for the " + name + " load of " + key, e);
+        }
+    }
+}
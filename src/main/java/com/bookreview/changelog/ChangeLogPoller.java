@@ -0,0 +1,178 @@
+package com.bookreview.changelog;
+
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.event.ChangeType;
+import com.bookreview.event.RatingAggregatesRepairedEvent;
+import com.bookreview.event.ReviewChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the change_log table and replays the changes other instances made as the local
+ * BookChangedEvent, ReviewChangedEvent, BulkImportCompletedEvent and
+ * RatingAggregatesRepairedEvent, so the entity and fragment
+ * caches, dashboard, search index and rating leaderboard of this instance drop what they made
+ * stale, exactly as for a local write.
+ *
+ * Each poll reads the rows above the highest id seen so far, an index range on the primary key.
+ * An id skipped on the way is a transaction that took its id but has not committed yet; it is
+ * looked up again on every poll until it shows up, or given up after
+ * bookreview.changelog.gap-timeout when it was rolled back. Polling starts at the end of the log,
+ * since the caches of a new instance start empty.
+ */
+@Component
+@ConditionalOnProperty(name = "bookreview.changelog.enabled", havingValue = "true")
+public class ChangeLogPoller {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogPoller.class);
+    
+    // Missing ids tracked per jump; a larger jump is an identity cache skipped on a database
+    // restart rather than transactions in flight
+    private static final int MAX_GAP = 1000;
+    
+    private static final String COLUMNS = "SELECT id, origin, event, entity_id, book_id, detail, " +
+            "DATEDIFF('MILLISECOND', created_at, LOCALTIMESTAMP) FROM change_log ";
+    
+    private record Change(long id, String origin, String event, Long entityId, Long bookId, String detail, long ageMillis) {
+    }
+    
+    private static final RowMapper<Change> CHANGE = (resultSet, rowNum) -> new Change(
+            resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+            resultSet.getObject(4, Long.class), resultSet.getObject(5, Long.class),
+            resultSet.getString(6), resultSet.getLong(7));
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ChangeLogWriter changeLogWriter;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${bookreview.changelog.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${bookreview.changelog.gap-timeout:10s}")
+    private Duration gapTimeout;
+    
+    private final Timer lagTimer;
+    
+    private final Counter appliedCounter;
+    
+    private final Counter abandonedGapCounter;
+    
+    // Highest id read; only the polling thread reads and advances it
+    private long watermark;
+    
+    // Ids skipped below the watermark, with the System.nanoTime() they were first missed
+    private final Map<Long, Long> gaps = Collections.synchronizedMap(new LinkedHashMap<>());
+    
+    public ChangeLogPoller(MeterRegistry meterRegistry) {
+        this.lagTimer = Timer.builder("bookreview.changelog.lag")
+                .description("Time from another instance's write to its replay on this instance")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.appliedCounter = Counter.builder("bookreview.changelog.applied")
+                .description("Changes made by other instances replayed on this one")
+                .register(meterRegistry);
+        this.abandonedGapCounter = Counter.builder("bookreview.changelog.gaps.abandoned")
+                .description("Skipped change log ids that never showed up, i.e. rolled-back writes")
+                .register(meterRegistry);
+        Gauge.builder("bookreview.changelog.gaps", gaps, Map::size)
+                .description("Skipped change log ids still waiting for their transaction to commit")
+                .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void startAtEnd() {
+        watermark = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM change_log", Long.class);
+        logger.info("Change log node {} polling after id {}", changeLogWriter.getNodeId(), watermark);
+    }
+    
+    @Scheduled(fixedDelayString = "${bookreview.changelog.poll-interval:1s}")
+    public void poll() {
+        if (!gaps.isEmpty()) {
+            pollGaps();
+        }
+        List<Change> changes;
+        do {
+            changes = jdbcTemplate.query(COLUMNS + "WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY",
+                    CHANGE, watermark, batchSize);
+            for (Change change : changes) {
+                long missing = change.id() - watermark - 1;
+                if (missing > 0 && missing <= MAX_GAP) {
+                    long now = System.nanoTime();
+                    for (long id = watermark + 1; id < change.id(); id++) {
+                        gaps.put(id, now);
+                    }
+                }
+                apply(change);
+                watermark = change.id();
+            }
+        } while (changes.size() == batchSize);
+    }
+    
+    private void pollGaps() {
+        List<Long> ids = List.copyOf(gaps.keySet());
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        for (Change change : jdbcTemplate.query(COLUMNS + "WHERE id IN (" + placeholders + ")", CHANGE, ids.toArray())) {
+            gaps.remove(change.id());
+            apply(change);
+        }
+        long cutoff = System.nanoTime() - gapTimeout.toNanos();
+        synchronized (gaps) {
+            Iterator<Long> missedAt = gaps.values().iterator();
+            while (missedAt.hasNext()) {
+                if (missedAt.next() - cutoff < 0) {
+                    missedAt.remove();
+                    abandonedGapCounter.increment();
+                }
+            }
+        }
+    }
+    
+    // This instance's own changes were applied when they were made
+    private void apply(Change change) {
+        if (changeLogWriter.getNodeId().equals(change.origin())) {
+            return;
+        }
+        Object event = switch (change.event()) {
+            case ChangeLogWriter.BOOK_CHANGED -> new BookChangedEvent(change.bookId(), ChangeType.valueOf(change.detail()));
+            case ChangeLogWriter.REVIEW_CHANGED ->
+                    new ReviewChangedEvent(change.entityId(), change.bookId(), ChangeType.valueOf(change.detail()));
+            case ChangeLogWriter.BULK_IMPORT -> new BulkImportCompletedEvent(change.detail(), change.entityId());
+            case ChangeLogWriter.RATINGS_REPAIRED -> new RatingAggregatesRepairedEvent(change.entityId().intValue());
+            default -> null;
+        };
+        if (event == null) {
+            logger.warn("Skipping change log entry {} of unknown type {}", change.id(), change.event());
+            return;
+        }
+        changeLogWriter.replay(() -> eventPublisher.publishEvent(event));
+        appliedCounter.increment();
+        lagTimer.record(Math.max(change.ageMillis(), 0), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,41 @@
+package com.bookreview.changelog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Deletes change log rows older than bookreview.changelog.retention. Every instance runs it;
+ * an instance that falls further behind than the retention misses those changes, which only
+ * matters to the caches that outlive it (the entity caches expire on their own).
+ */
+@Component
+@ConditionalOnProperty(name = "bookreview.changelog.enabled", havingValue = "true")
+public class ChangeLogRetentionJob {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogRetentionJob.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${bookreview.changelog.retention:1h}")
+    private Duration retention;
+    
+    @Scheduled(cron = "${bookreview.changelog.retention-cron:0 */10 * * * *}")
+    public int deleteExpired() {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM change_log WHERE created_at < DATEADD('MILLISECOND', ?, LOCALTIMESTAMP)",
+                -retention.toMillis());
+        if (deleted > 0) {
+            logger.info("Deleted {} change log entries older than {}", deleted, retention);
+        }
+        return deleted;
+    }
+}
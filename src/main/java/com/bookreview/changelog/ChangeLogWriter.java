@@ -0,0 +1,86 @@
+package com.bookreview.changelog;
+
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.event.RatingAggregatesRepairedEvent;
+import com.bookreview.event.ReviewChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * Appends every book, review and import change, and every rating aggregates repair that corrected
+ * a book, to the change_log table, in the transaction that made the change, so it is logged exactly when it commits. ChangeLogPoller on the other
+ * instances replays it to their caches; changes it replays are not logged again.
+ */
+@Component
+@ConditionalOnProperty(name = "bookreview.changelog.enabled", havingValue = "true")
+public class ChangeLogWriter {
+    
+    static final String BOOK_CHANGED = "BOOK";
+    static final String REVIEW_CHANGED = "REVIEW";
+    static final String BULK_IMPORT = "IMPORT";
+    static final String RATINGS_REPAIRED = "REPAIR";
+    
+    private static final String INSERT =
+            "INSERT INTO change_log (origin, event, entity_id, book_id, detail) VALUES (?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Identifies this instance's rows, which the poller skips; a new one on every start
+    private final String nodeId = UUID.randomUUID().toString();
+    
+    private final ThreadLocal<Boolean> replaying = ThreadLocal.withInitial(() -> false);
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    // Publish an event read from the log without logging it again
+    void replay(Runnable publish) {
+        replaying.set(true);
+        try {
+            publish.run();
+        } finally {
+            replaying.set(false);
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        append(BOOK_CHANGED, event.bookId(), event.bookId(), event.type().name());
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        append(REVIEW_CHANGED, event.reviewId(), event.bookId(), event.type().name());
+    }
+    
+    // Published after the import's own transactions, so the row is written on its own
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBulkImportCompleted(BulkImportCompletedEvent event) {
+        append(BULK_IMPORT, event.rowsImported(), null, event.entity());
+    }
+    
+    // Logged without a book, so every instance treats every book as changed; the corrected books
+    // are committed one by one before this is published, so it is written on its own too
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRatingAggregatesRepaired(RatingAggregatesRepairedEvent event) {
+        if (event.booksUpdated() > 0) {
+            append(RATINGS_REPAIRED, (long) event.booksUpdated(), null, null);
+        }
+    }
+    
+    private void append(String type, Long entityId, Long bookId, String detail) {
+        if (!replaying.get()) {
+            jdbcTemplate.update(INSERT, nodeId, type, entityId, bookId, detail);
+        }
+    }
+}
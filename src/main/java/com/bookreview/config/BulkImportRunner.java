@@ -0,0 +1,79 @@
+package com.bookreview.config;
+
+import com.bookreview.bulk.BulkImportService;
+import com.bookreview.bulk.DataFormat;
+import com.bookreview.bulk.ImportReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports files named on the command line at startup, after DataInitializer, e.g.
+ * java -jar app.jar --bookreview.import.books=catalog.csv --bookreview.import.reviews=reviews.jsonl
+ *
+ * The format follows the file extension. Books are imported first so reviews can refer to
+ * them; with bookreview.import.exit=true the application stops once the import is done.
+ */
+@Component
+@Order(1)
+public class BulkImportRunner implements CommandLineRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportRunner.class);
+    
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @Value("${bookreview.import.books:}")
+    private String booksFile;
+    
+    @Value("${bookreview.import.reviews:}")
+    private String reviewsFile;
+    
+    @Value("${bookreview.import.exit:false}")
+    private boolean exitWhenDone;
+    
+    @Override
+    public void run(String... args) throws Exception {
+        if (booksFile.isBlank() && reviewsFile.isBlank()) {
+            return;
+        }
+        boolean failed = false;
+        if (!booksFile.isBlank()) {
+            try (Reader reader = Files.newBufferedReader(Path.of(booksFile), StandardCharsets.UTF_8)) {
+                failed |= log(bulkImportService.importBooks(reader, DataFormat.fromName(booksFile)));
+            }
+        }
+        if (!reviewsFile.isBlank()) {
+            try (Reader reader = Files.newBufferedReader(Path.of(reviewsFile), StandardCharsets.UTF_8)) {
+                failed |= log(bulkImportService.importReviews(reader, DataFormat.fromName(reviewsFile)));
+            }
+        }
+        if (exitWhenDone) {
+            int exitCode = failed ? 1 : 0;
+            System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+        }
+    }
+    
+    // Logs the rejected rows of a report; true if there were any
+    private boolean log(ImportReport report) {
+        report.getErrors().forEach(error -> logger.warn("{} line {}: {}", report.getEntity(), error.line(), error.message()));
+        if (report.isErrorsTruncated()) {
+            logger.warn("{} more {} rows rejected", report.getRowsRejected() - report.getErrors().size(), report.getEntity());
+        }
+        return report.getRowsRejected() > 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bookreview.config;
+
+import com.bookreview.cache.EntityCache;
+import com.bookreview.cache.FragmentCache;
+import com.bookreview.cache.SingleFlight;
+import com.bookreview.model.Book;
+import com.bookreview.model.EntityVersion;
+import com.bookreview.model.Review;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.service.BookPageKey;
+import com.bookreview.service.KeysetPage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Configuration
+public class CacheConfig {
+    
+    @Value("${bookreview.cache.maximum-size:10000}")
+    private long maximumSize;
+    
+    @Value("${bookreview.cache.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+    
+    @Value("${bookreview.fragment-cache.max-size:16MB}")
+    private DataSize fragmentCacheMaxSize;
+    
+    @Value("${bookreview.single-flight.enabled:true}")
+    private boolean singleFlightEnabled;
+    
+    @Value("${bookreview.single-flight.timeout:5s}")
+    private Duration singleFlightTimeout;
+    
+    @Bean
+    public EntityCache<Book> bookCache(MeterRegistry meterRegistry) {
+        return new EntityCache<>(buildCache("books", meterRegistry));
+    }
+    
+    @Bean
+    public EntityCache<Review> reviewCache(MeterRegistry meterRegistry) {
+        return new EntityCache<>(buildCache("reviews", meterRegistry));
+    }
+    
+    // Concurrent reads behind every request for a book's page and review list: the version
+    // checked for conditional GETs and the first page of reviews
+    @Bean
+    public SingleFlight<Long, Optional<EntityVersion>> bookVersionLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("book-version", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+    }
+    
+    @Bean
+    public SingleFlight<BookPageKey, KeysetPage<Review>> bookReviewPageLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("book-reviews", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+    }
+    
+    @Bean
+    public SingleFlight<BookPageKey, KeysetPage<ReviewSummary>> bookReviewSummaryPageLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("book-review-summaries", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+    }
+    
+    // Bounded by the approximate bytes of the cached HTML; evicts the least recently and
+    // frequently used fragments first
+    @Bean
+    public FragmentCache fragmentCache(MeterRegistry meterRegistry) {
+        Cache<FragmentCache.Key, String> cache = Caffeine.newBuilder()
+                .maximumWeight(fragmentCacheMaxSize.toBytes())
+                .weigher(FragmentCache::weigh)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fragments");
+        Gauge.builder("bookreview.fragment.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of fragment lookups served without rendering, since startup")
+                .register(meterRegistry);
+        Gauge.builder("bookreview.fragment.cache.size", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .baseUnit("bytes")
+                .description("Approximate memory held by cached fragments")
+                .register(meterRegistry);
+        return new FragmentCache(cache);
+    }
+    
+    // Size- and time-bounded, with hit/miss/eviction statistics published as cache.* metrics
+    private <T> Cache<Long, T> buildCache(String name, MeterRegistry meterRegistry) {
+        Cache<Long, T> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+}
@@ -0,0 +1,67 @@
+package com.bookreview.config;
+
+import com.bookreview.bulk.DataGenerator;
+import com.bookreview.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills an empty database with a synthetic dataset of bookreview.generate.scale times
+ * bookreview.generate.books-per-scale books, e.g.
+ * java -jar app.jar --bookreview.generate.scale=10 --bookreview.generate.exit=true
+ * or the generate profile. Runs before DataInitializer, which then finds books and adds no
+ * sample data; a database that already has books is left alone, so a generated file database
+ * can be reused.
+ */
+@Component
+@Order(-1)
+public class DataGeneratorRunner implements CommandLineRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DataGeneratorRunner.class);
+    
+    @Autowired
+    private DataGenerator dataGenerator;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @Value("${bookreview.generate.scale:0}")
+    private int scale;
+    
+    @Value("${bookreview.generate.books-per-scale:20000}")
+    private int booksPerScale;
+    
+    @Value("${bookreview.generate.reviews-per-book:10}")
+    private int reviewsPerBook;
+    
+    @Value("${bookreview.generate.seed:42}")
+    private long seed;
+    
+    @Value("${bookreview.generate.exit:false}")
+    private boolean exitWhenDone;
+    
+    @Override
+    public void run(String... args) throws Exception {
+        if (scale <= 0) {
+            return;
+        }
+        if (bookRepository.count() > 0) {
+            logger.info("Database already has books, not generating the {}x dataset", scale);
+        } else {
+            dataGenerator.generate(new DataGenerator.Spec(Math.multiplyExact(scale, booksPerScale), reviewsPerBook, seed));
+        }
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+}
@@ -4,14 +4,18 @@ import com.bookreview.model.Book;
 import com.bookreview.model.Review;
 import com.bookreview.repository.BookRepository;
 import com.bookreview.repository.ReviewRepository;
+import com.bookreview.service.RatingAggregateRepairJob;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Component
+@Order(0)
 public class DataInitializer implements CommandLineRunner {
     
     @Autowired
@@ -20,8 +24,20 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private ReviewRepository reviewRepository;
     
+    @Autowired
+    private RatingAggregateRepairJob ratingAggregateRepairJob;
+    
+    // Read here rather than as a bean condition, which an AOT build would fix at build time
+    @Value("${bookreview.sample-data.enabled:true}")
+    private boolean sampleDataEnabled;
+    
     @Override
     public void run(String... args) throws Exception {
+        // Deployments with their own data skip the check, a query on every boot
+        if (!sampleDataEnabled) {
+            return;
+        }
+        
         // Check if data already exists
         if (bookRepository.count() > 0) {
             return; // Data already initialized
@@ -153,6 +169,9 @@ public class DataInitializer implements CommandLineRunner {
             review6, review7, review8, review9, review10
         ));
         
+        // Reviews were saved directly through the repository, so bring the book aggregates up to date
+        ratingAggregateRepairJob.recomputeAll();
+        
         System.out.println("Sample data initialized successfully!");
         System.out.println("Added " + books.size() + " books and 10 reviews.");
     }
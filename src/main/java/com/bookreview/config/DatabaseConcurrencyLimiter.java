@@ -0,0 +1,45 @@
+package com.bookreview.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Wraps each connection pool in a ConcurrencyLimitedDataSource sized to that pool's own
+ * maximum-pool-size when bookreview.db.limit-concurrency is true. With virtual threads Tomcat
+ * no longer caps concurrent requests, so this keeps the number of threads hitting each database
+ * at the size of its pool: with a read replica, the primary and replica pools are limited
+ * separately. Off by default; the virtual-threads profile turns it on. Wrappers such as the
+ * read/write routing proxy are left alone, since they are not pools.
+ */
+@Component
+public class DatabaseConcurrencyLimiter implements BeanPostProcessor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseConcurrencyLimiter.class);
+    
+    private final boolean enabled;
+    
+    private final Duration acquireTimeout;
+    
+    public DatabaseConcurrencyLimiter(@Value("${bookreview.db.limit-concurrency:false}") boolean enabled,
+                                      @Value("${bookreview.db.acquire-timeout:30s}") Duration acquireTimeout) {
+        this.enabled = enabled;
+        this.acquireTimeout = acquireTimeout;
+    }
+    
+    // Runs after the pool's spring.datasource.hikari.* properties are bound
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof HikariDataSource pool)) {
+            return bean;
+        }
+        int maxConcurrency = pool.getMaximumPoolSize();
+        logger.info("Limiting concurrent use of DataSource '{}' to {} connections", beanName, maxConcurrency);
+        return new ConcurrencyLimitedDataSource(pool, maxConcurrency, acquireTimeout);
+    }
+}
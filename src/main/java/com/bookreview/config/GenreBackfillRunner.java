@@ -0,0 +1,24 @@
+package com.bookreview.config;
+
+import com.bookreview.service.GenreService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Links books that have no normalized genre yet to one at startup, after the sample data
+ * and any command-line import. Once every book is linked this is a single query.
+ */
+@Component
+@Order(2)
+public class GenreBackfillRunner implements CommandLineRunner {
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Override
+    public void run(String... args) {
+        genreService.assignMissingGenres();
+    }
+}
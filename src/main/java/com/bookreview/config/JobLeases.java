@@ -0,0 +1,46 @@
+package com.bookreview.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Lets one instance run a scheduled job that every instance has scheduled. The first instance
+ * to take a job's row in job_leases runs it; the others find the lease held and skip that run.
+ * The lease is kept until it expires rather than released, so an instance whose clock or
+ * scheduler fires a little later still skips, and it must be shorter than the schedule's period.
+ */
+@Component
+public class JobLeases {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JobLeases.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NodeIdentity nodeIdentity;
+    
+    // True when this instance now holds the lease of the job for the given duration
+    public boolean tryAcquire(String job, Duration lease) {
+        try {
+            jdbcTemplate.update("INSERT INTO job_leases (job, locked_until) SELECT ?, TIMESTAMP '1970-01-01 00:00:00' "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM job_leases WHERE job = ?)", job, job);
+        } catch (DuplicateKeyException anotherInstanceAddedItFirst) {
+            // The row exists now, which is all that matters
+        }
+        int taken = jdbcTemplate.update("UPDATE job_leases SET holder = ?, "
+                        + "locked_until = DATEADD('MILLISECOND', ?, LOCALTIMESTAMP) "
+                        + "WHERE job = ? AND locked_until < LOCALTIMESTAMP",
+                nodeIdentity.getId(), lease.toMillis(), job);
+        if (taken == 0) {
+            logger.info("Skipping {}: another instance holds its lease", job);
+        }
+        return taken == 1;
+    }
+}
@@ -0,0 +1,31 @@
+package com.bookreview.config;
+
+import com.bookreview.metrics.JdbcStatementCounter;
+import com.bookreview.schema.StatementCapture;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metric names and wiring for the hot-path instrumentation. Service and controller classes
+ * carry class-level @Timed annotations with the names below, timed by Spring Boot's
+ * TimedAspect (management.observations.annotations.enabled).
+ */
+@Configuration
+public class MetricsConfig {
+    
+    public static final String SERVICE_TIMER = "bookreview.service";
+    
+    public static final String CONTROLLER_TIMER = "bookreview.controller";
+    
+    // Hands the Spring-managed statement counter to Hibernate, behind the statement capture of
+    // QueryPlanVerifier so captured statements, which never run, are not counted
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(JdbcStatementCounter statementCounter,
+                                                                      StatementCapture statementCapture) {
+        StatementInspector inspector = sql -> statementCounter.inspect(statementCapture.inspect(sql));
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+}
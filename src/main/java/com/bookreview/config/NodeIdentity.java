@@ -0,0 +1,36 @@
+package com.bookreview.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Stable name of this instance, for state that belongs to one instance and must be found again
+ * after a restart: its job leases and its review write-behind journal. bookreview.node-id when
+ * set (e.g. the pod name of a StatefulSet), otherwise the host name and server port, so two
+ * instances on one host differ as long as their ports do.
+ */
+@Component
+public class NodeIdentity {
+    
+    private final String id;
+    
+    public NodeIdentity(@Value("${bookreview.node-id:}") String configuredId,
+                        @Value("${server.port:8080}") int port) {
+        this.id = configuredId.isBlank() ? hostName() + "-" + port : configuredId;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.bookreview.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends the connections of read-only transactions to the replica pool and all others,
+ * including work outside a transaction, to the primary. It must sit behind a
+ * LazyConnectionDataSourceProxy, so the connection is only fetched at the first statement,
+ * once the transaction's read-only flag is set. ReadYourWritesFilter pins the reads of a
+ * client that wrote recently to the primary with readFromPrimary().
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    
+    enum Route {
+        PRIMARY, REPLICA
+    }
+    
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+    
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+    
+    // Route the read-only transactions of the current thread to the primary as well, or stop doing so
+    public static void readFromPrimary(boolean enabled) {
+        if (enabled) {
+            primaryReads.set(Boolean.TRUE);
+        } else {
+            primaryReads.remove();
+        }
+    }
+    
+    public static boolean readsFromPrimary() {
+        return primaryReads.get() != null;
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && primaryReads.get() == null) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
@@ -0,0 +1,89 @@
+package com.bookreview.controller;
+
+import com.bookreview.model.BookDetail;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.ReviewDetail;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.ratings.RankedBook;
+import com.bookreview.ratings.RatingStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The JSON shape of each projection served by the /api/v1 controllers.
+ */
+final class ApiFields {
+    
+    static final JsonFields<BookSummary> BOOK_SUMMARY = JsonFields.<BookSummary>of()
+            .add("id", BookSummary::id)
+            .add("title", BookSummary::title)
+            .add("author", BookSummary::author)
+            .add("genre", BookSummary::genre)
+            .add("publicationYear", BookSummary::publicationYear)
+            .add("descriptionSnippet", BookSummary::descriptionSnippet)
+            .add("createdAt", BookSummary::createdAt)
+            .add("reviewCount", BookSummary::reviewCount)
+            .add("averageRating", BookSummary::averageRating);
+    
+    static final JsonFields<BookDetail> BOOK_DETAIL = JsonFields.<BookDetail>of()
+            .add("id", BookDetail::id)
+            .add("title", BookDetail::title)
+            .add("author", BookDetail::author)
+            .add("genre", BookDetail::genre)
+            .add("isbn", BookDetail::isbn)
+            .add("description", BookDetail::description)
+            .add("publicationYear", BookDetail::publicationYear)
+            .add("createdAt", BookDetail::createdAt)
+            .add("updatedAt", BookDetail::updatedAt)
+            .add("reviewCount", BookDetail::reviewCount)
+            .add("averageRating", BookDetail::averageRating);
+    
+    static final JsonFields<RatingStats> BOOK_STATS = JsonFields.<RatingStats>of()
+            .add("bookId", RatingStats::bookId)
+            .add("reviewCount", RatingStats::reviewCount)
+            .add("averageRating", RatingStats::averageRating)
+            .add("weightedRating", RatingStats::weightedRating)
+            .add("histogram", RatingStats::histogram);
+    
+    static final JsonFields<RankedBook> RANKED_BOOK = JsonFields.<RankedBook>of()
+            .add("rank", RankedBook::rank)
+            .add("id", ranked -> ranked.book().id())
+            .add("title", ranked -> ranked.book().title())
+            .add("author", ranked -> ranked.book().author())
+            .add("genre", ranked -> ranked.book().genre())
+            .add("reviewCount", ranked -> ranked.book().reviewCount())
+            .add("averageRating", ranked -> ranked.book().averageRating())
+            .add("weightedRating", RankedBook::weightedRating);
+    
+    static final JsonFields<ReviewSummary> REVIEW_SUMMARY = JsonFields.<ReviewSummary>of()
+            .add("id", ReviewSummary::id)
+            .add("bookId", ReviewSummary::bookId)
+            .add("bookTitle", ReviewSummary::bookTitle)
+            .add("bookAuthor", ReviewSummary::bookAuthor)
+            .add("reviewerName", ReviewSummary::reviewerName)
+            .add("rating", ReviewSummary::rating)
+            .add("commentSnippet", ReviewSummary::commentSnippet)
+            .add("createdAt", ReviewSummary::createdAt);
+    
+    static final JsonFields<ReviewDetail> REVIEW_DETAIL = JsonFields.<ReviewDetail>of()
+            .add("id", ReviewDetail::id)
+            .add("bookId", ReviewDetail::bookId)
+            .add("bookTitle", ReviewDetail::bookTitle)
+            .add("reviewerName", ReviewDetail::reviewerName)
+            .add("rating", ReviewDetail::rating)
+            .add("comment", ReviewDetail::comment)
+            .add("createdAt", ReviewDetail::createdAt)
+            .add("updatedAt", ReviewDetail::updatedAt);
+    
+    private ApiFields() {
+    }
+    
+    // The requested subset of fields, answering 400 for a field the type does not have
+    static <T> JsonFields<T> select(JsonFields<T> fields, String requested) {
+        try {
+            return fields.select(requested);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
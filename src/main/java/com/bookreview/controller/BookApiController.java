@@ -0,0 +1,117 @@
+package com.bookreview.controller;
+
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.metrics.QueryBudget;
+import com.bookreview.model.BookDetail;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.ratings.RankedBook;
+import com.bookreview.ratings.RatingStats;
+import com.bookreview.ratings.RatingStatsService;
+import com.bookreview.service.BookService;
+import com.bookreview.service.KeysetPage;
+import com.bookreview.service.ReviewService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * JSON read API for books, e.g. GET /api/v1/books?fields=id,title&amp;size=50 for a compact
+ * listing. Every endpoint reads a projection that selects only the columns it returns; ?fields=
+ * narrows the output further, and list endpoints page with the same after/size cursors as the
+ * HTML pages.
+ */
+@RestController
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
+@RequestMapping("/api/v1/books")
+public class BookApiController {
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private RatingStatsService ratingStatsService;
+    
+    @Autowired
+    private JsonResponseWriter jsonResponseWriter;
+    
+    @GetMapping
+    @QueryBudget(1)
+    public void listBooks(@RequestParam(required = false) String after,
+                          @RequestParam(required = false) Integer size,
+                          @RequestParam(required = false) String fields,
+                          HttpServletResponse response) throws IOException {
+        JsonFields<BookSummary> selected = ApiFields.select(ApiFields.BOOK_SUMMARY, fields);
+        jsonResponseWriter.writePage(response, selected, bookService.getBookSummariesPage(after, size));
+    }
+    
+    @GetMapping("/search")
+    @QueryBudget(2)
+    public void searchBooks(@RequestParam String q,
+                            @RequestParam(required = false) String fields,
+                            HttpServletResponse response) throws IOException {
+        JsonFields<BookSummary> selected = ApiFields.select(ApiFields.BOOK_SUMMARY, fields);
+        jsonResponseWriter.writeList(response, selected, bookService.searchBookSummaries(q));
+    }
+    
+    // Ranked from memory by Bayesian average, overall or within ?genre=; only the summaries of the
+    // ranked books are read
+    @GetMapping("/top-rated")
+    @QueryBudget(1)
+    public void listTopRated(@RequestParam(required = false) String genre,
+                             @RequestParam(required = false) Integer size,
+                             @RequestParam(required = false) String fields,
+                             HttpServletResponse response) throws IOException {
+        JsonFields<RankedBook> selected = ApiFields.select(ApiFields.RANKED_BOOK, fields);
+        if (!ratingStatsService.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The rating leaderboard is still loading");
+        }
+        jsonResponseWriter.writeList(response, selected, ratingStatsService.getTopRated(genre, size));
+    }
+    
+    @GetMapping("/{id}")
+    @QueryBudget(1)
+    public void getBook(@PathVariable Long id,
+                        @RequestParam(required = false) String fields,
+                        HttpServletResponse response) throws IOException {
+        JsonFields<BookDetail> selected = ApiFields.select(ApiFields.BOOK_DETAIL, fields);
+        BookDetail book = bookService.getBookDetail(id).orElseThrow(() -> bookNotFound(id));
+        jsonResponseWriter.writeObject(response, selected, book);
+    }
+    
+    // Rating histogram and averages; from memory for a book with reviews, which takes no query
+    @GetMapping("/{id}/stats")
+    @QueryBudget(1)
+    public void getBookStats(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        RatingStats stats = ratingStatsService.getStats(id).orElseThrow(() -> bookNotFound(id));
+        jsonResponseWriter.writeObject(response, ApiFields.BOOK_STATS, stats);
+    }
+    
+    // The existence check only runs when the first page comes back empty
+    @GetMapping("/{id}/reviews")
+    @QueryBudget(2)
+    public void listBookReviews(@PathVariable Long id,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) Integer size,
+                                @RequestParam(required = false) String fields,
+                                HttpServletResponse response) throws IOException {
+        JsonFields<ReviewSummary> selected = ApiFields.select(ApiFields.REVIEW_SUMMARY, fields);
+        KeysetPage<ReviewSummary> page = reviewService.getReviewSummariesPageByBookId(id, null, after, size);
+        if (page.items().isEmpty() && after == null && !bookService.existsById(id)) {
+            throw bookNotFound(id);
+        }
+        jsonResponseWriter.writePage(response, selected, page);
+    }
+    
+    private static ResponseStatusException bookNotFound(Long id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Book " + id + " does not exist");
+    }
+}
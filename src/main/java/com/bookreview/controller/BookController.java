@@ -1,44 +1,84 @@
 package com.bookreview.controller;
 
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.metrics.QueryBudget;
 import com.bookreview.model.Book;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.EntityVersion;
+import com.bookreview.model.Genre;
+import com.bookreview.model.Review;
 import com.bookreview.service.BookService;
+import com.bookreview.service.GenreService;
+import com.bookreview.service.KeysetPage;
+import com.bookreview.service.ReviewService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.UriUtils;
 
 import jakarta.validation.Valid;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
 @RequestMapping("/books")
 public class BookController {
     
+    // Reviews shown on the book page; the rest are on /reviews/book/{id}
+    private static final int BOOK_PAGE_REVIEWS = 10;
+    
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private ConditionalGet conditionalGet;
+    
+    @Autowired
+    private HtmlFragments htmlFragments;
+    
+    @QueryBudget(1)
     @GetMapping
-    public String listBooks(@RequestParam(required = false) String search, Model model) {
-        List<Book> books;
+    public String listBooks(@RequestParam(required = false) String search,
+                            @RequestParam(required = false) String after,
+                            @RequestParam(required = false) Integer size,
+                            Model model) {
+        List<BookSummary> books;
         if (search != null && !search.trim().isEmpty()) {
-            books = bookService.searchBooks(search);
+            books = bookService.searchBookSummaries(search);
             model.addAttribute("search", search);
         } else {
-            books = bookService.getAllBooks();
+            KeysetPage<BookSummary> page = bookService.getBookSummariesPage(after, size);
+            books = page.items();
+            model.addAttribute("nextCursor", page.nextCursor());
+            model.addAttribute("size", size);
+            model.addAttribute("pageUrl", "/books");
         }
         model.addAttribute("books", books);
         return "books/list";
     }
     
+    @QueryBudget(0)
     @GetMapping("/new")
     public String showCreateForm(Model model) {
         model.addAttribute("book", new Book());
         return "books/create";
     }
     
+    @QueryBudget(4)
     @PostMapping("/new")
     public String createBook(@Valid @ModelAttribute Book book, 
                            BindingResult result, 
@@ -52,17 +92,36 @@ public class BookController {
         return "redirect:/books";
     }
     
+    // Answered with 304 from the book version when the client's copy is current; the version
+    // also moves when one of the book's reviews changes
+    @QueryBudget(3)
     @GetMapping("/{id}")
-    public String viewBook(@PathVariable Long id, Model model) {
-        Optional<Book> bookOpt = bookService.getBookById(id);
+    public String viewBook(@PathVariable Long id, ServletWebRequest webRequest, Model model) {
+        Optional<EntityVersion> version = bookService.getBookVersion(id);
+        if (conditionalGet.notModified(webRequest, version)) {
+            return null;
+        }
+        Optional<Book> bookOpt = version.flatMap(current -> bookService.getBookAtVersion(id, current));
         if (bookOpt.isEmpty()) {
             return "redirect:/books";
         }
         
-        model.addAttribute("book", bookOpt.get());
+        // The details and review list come from the fragment cache while the book version and
+        // review count are unchanged; the reviews are only queried to render a missing fragment
+        Book book = bookOpt.get();
+        conditionalGet.describe(webRequest, EntityVersion.of(book));
+        String stamp = book.getVersion() + "-" + book.getReviewCount();
+        model.addAttribute("book", book);
+        model.addAttribute("bookDetailsHtml", htmlFragments.render("books/view", "bookDetails", id, stamp,
+                () -> Map.of("book", book)));
+        model.addAttribute("bookReviewsHtml", htmlFragments.render("books/view", "bookReviews", id, stamp, () -> {
+            KeysetPage<Review> reviews = reviewService.getReviewsPageByBookId(id, book.getVersion(), null, BOOK_PAGE_REVIEWS);
+            return Map.of("book", book, "reviews", reviews.items(), "hasMoreReviews", reviews.hasNext());
+        }));
         return "books/view";
     }
     
+    @QueryBudget(1)
     @GetMapping("/{id}/edit")
     public String showEditForm(@PathVariable Long id, Model model) {
         Optional<Book> bookOpt = bookService.getBookById(id);
@@ -74,6 +133,7 @@ public class BookController {
         return "books/edit";
     }
     
+    @QueryBudget(6)
     @PostMapping("/{id}/edit")
     public String updateBook(@PathVariable Long id, 
                            @Valid @ModelAttribute Book book, 
@@ -89,6 +149,7 @@ public class BookController {
         return "redirect:/books/" + id;
     }
     
+    @QueryBudget(7)
     @PostMapping("/{id}/delete")
     public String deleteBook(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         if (bookService.existsById(id)) {
@@ -98,11 +159,25 @@ public class BookController {
         return "redirect:/books";
     }
     
+    // Genre names match case- and whitespace-insensitively; an unknown genre shows no books
+    @QueryBudget(2)
     @GetMapping("/genre/{genre}")
-    public String booksByGenre(@PathVariable String genre, Model model) {
-        List<Book> books = bookService.getBooksByGenre(genre);
-        model.addAttribute("books", books);
-        model.addAttribute("genre", genre);
+    public String booksByGenre(@PathVariable String genre,
+                               @RequestParam(required = false) String after,
+                               @RequestParam(required = false) Integer size,
+                               Model model) {
+        Optional<Genre> genreOpt = genreService.findByName(genre);
+        if (genreOpt.isPresent()) {
+            KeysetPage<BookSummary> page = bookService.getBookSummariesByGenrePage(genreOpt.get(), after, size);
+            model.addAttribute("books", page.items());
+            model.addAttribute("nextCursor", page.nextCursor());
+            model.addAttribute("genre", genreOpt.get().getName());
+        } else {
+            model.addAttribute("books", List.of());
+            model.addAttribute("genre", genre);
+        }
+        model.addAttribute("size", size);
+        model.addAttribute("pageUrl", "/books/genre/" + UriUtils.encodePathSegment(genre, StandardCharsets.UTF_8));
         return "books/list";
     }
 }
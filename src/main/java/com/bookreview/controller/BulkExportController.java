@@ -0,0 +1,67 @@
+package com.bookreview.controller;
+
+import com.bookreview.bulk.BulkExportService;
+import com.bookreview.bulk.DataFormat;
+import com.bookreview.config.MetricsConfig;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+/**
+ * Streaming export of books and reviews as CSV or JSON Lines, e.g.
+ * GET /admin/export/reviews?format=jsonl&amp;since=2024-06-01T00:00:00 for an incremental dump
+ * of the reviews created since then.
+ */
+@RestController
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
+@RequestMapping("/admin/export")
+public class BulkExportController {
+    
+    @Autowired
+    private BulkExportService bulkExportService;
+    
+    @GetMapping("/books")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @RequestParam(defaultValue = "jsonl") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        DataFormat dataFormat = parseFormat(format);
+        return download("books", dataFormat, out -> bulkExportService.exportBooks(out, dataFormat, since));
+    }
+    
+    @GetMapping("/reviews")
+    public ResponseEntity<StreamingResponseBody> exportReviews(
+            @RequestParam(defaultValue = "jsonl") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        DataFormat dataFormat = parseFormat(format);
+        return download("reviews", dataFormat, out -> bulkExportService.exportReviews(out, dataFormat, since));
+    }
+    
+    private static ResponseEntity<StreamingResponseBody> download(String name, DataFormat format,
+                                                                  StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(name + "." + format.getExtension())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+    
+    private static DataFormat parseFormat(String format) {
+        try {
+            return DataFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.bookreview.controller;
+
+import com.bookreview.bulk.BulkImportService;
+import com.bookreview.bulk.DataFormat;
+import com.bookreview.bulk.ImportReport;
+import com.bookreview.config.MetricsConfig;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bulk import of books and reviews. The request body is the raw CSV or JSON Lines file,
+ * read as a stream, e.g.
+ * curl -H 'Content-Type: text/csv' --data-binary @books.csv /admin/import/books?format=csv
+ */
+@RestController
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
+@RequestMapping("/admin/import")
+public class BulkImportController {
+    
+    private static final String NOT_FORM = "!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE;
+    
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    // A form-encoded body would be consumed as request parameters, so curl's default
+    // Content-Type is refused rather than importing nothing
+    @PostMapping(path = "/books", consumes = NOT_FORM)
+    public ImportReport importBooks(@RequestParam(defaultValue = "csv") String format,
+                                    HttpServletRequest request) throws IOException {
+        return bulkImportService.importBooks(body(request), parseFormat(format));
+    }
+    
+    @PostMapping(path = "/reviews", consumes = NOT_FORM)
+    public ImportReport importReviews(@RequestParam(defaultValue = "csv") String format,
+                                      HttpServletRequest request) throws IOException {
+        return bulkImportService.importReviews(body(request), parseFormat(format));
+    }
+    
+    private static Reader body(HttpServletRequest request) throws IOException {
+        return new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+    }
+    
+    private static DataFormat parseFormat(String format) {
+        try {
+            return DataFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.bookreview.controller;
+
+import com.bookreview.model.EntityVersion;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Answers conditional GETs of entity-backed pages from the entity version alone.
+ *
+ * The ETag combines the entity version with the build time, so a new release with changed
+ * templates does not keep serving 304s for the old HTML; Last-Modified is the later of the
+ * two. Responses carry Cache-Control: no-cache so browsers revalidate on every view instead
+ * of reusing a page heuristically after an edit.
+ */
+@Component
+class ConditionalGet {
+    
+    private final String buildTag;
+    
+    private final Instant buildTime;
+    
+    ConditionalGet(ObjectProvider<BuildProperties> buildProperties) {
+        // Without build-info (e.g. running from an IDE) the start time stands in for the build time
+        Instant time = Optional.ofNullable(buildProperties.getIfAvailable())
+                .map(BuildProperties::getTime)
+                .orElseGet(Instant::now);
+        this.buildTime = time;
+        this.buildTag = Long.toString(time.toEpochMilli(), 36);
+    }
+    
+    // True when the client's copy is current and a 304 has been prepared; the handler then
+    // returns null without building a model or rendering a view. An absent version means the
+    // entity does not exist, which the handler deals with as before.
+    boolean notModified(ServletWebRequest request, Optional<EntityVersion> version) {
+        if (version.isEmpty()) {
+            return false;
+        }
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        return request.checkNotModified(eTag(version.get()), lastModified(version.get()));
+    }
+    
+    // Labels the response with the version of the entity actually rendered. It differs from the
+    // version checked by notModified when the entity was read again in between, and the page
+    // must not be answered with 304s under a newer version than it shows.
+    void describe(ServletWebRequest request, EntityVersion version) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.ETAG, eTag(version));
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified(version));
+        }
+    }
+    
+    private String eTag(EntityVersion version) {
+        return "\"" + version.tag() + "-" + buildTag + "\"";
+    }
+    
+    private long lastModified(EntityVersion version) {
+        if (version.lastModified() == null) {
+            return buildTime.toEpochMilli();
+        }
+        Instant modified = version.lastModified().atZone(ZoneId.systemDefault()).toInstant();
+        return Math.max(modified.toEpochMilli(), buildTime.toEpochMilli());
+    }
+}
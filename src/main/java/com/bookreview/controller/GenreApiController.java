@@ -0,0 +1,34 @@
+package com.bookreview.controller;
+
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.metrics.QueryBudget;
+import com.bookreview.service.GenreService;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Genre facets for filtering the catalogue: every genre with books and how many it has.
+ * Served from the counts stored on the genres table, so the books table is never scanned.
+ */
+@RestController
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
+@RequestMapping("/api/v1/genres")
+public class GenreApiController {
+    
+    @Autowired
+    private GenreService genreService;
+    
+    public record GenreFacet(Long id, String name, int bookCount) {
+    }
+    
+    @GetMapping
+    @QueryBudget(1)
+    public List<GenreFacet> listGenres() {
+        return genreService.getGenreFacets().stream()
+                .map(genre -> new GenreFacet(genre.getId(), genre.getName(), genre.getBookCount()))
+                .toList();
+    }
+}
@@ -1,39 +1,43 @@
 package com.bookreview.controller;
 
-import com.bookreview.service.BookService;
-import com.bookreview.service.ReviewService;
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.metrics.QueryBudget;
+import com.bookreview.service.DashboardService;
+import com.bookreview.service.DashboardSnapshot;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import java.util.Map;
+
 @Controller
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
 public class HomeController {
     
     @Autowired
-    private BookService bookService;
+    private DashboardService dashboardService;
     
     @Autowired
-    private ReviewService reviewService;
+    private HtmlFragments htmlFragments;
     
+    @QueryBudget(4)
     @GetMapping("/")
     public String home(Model model) {
-        // Get dashboard statistics
-        long totalBooks = bookService.getTotalBookCount();
-        long totalReviews = reviewService.getTotalReviewCount();
-        
-        // Get recent books and reviews
-        var recentBooks = bookService.getAllBooks().stream().limit(5).toList();
-        var recentReviews = reviewService.getAllReviews().stream().limit(5).toList();
+        // Dashboard statistics and recent activity come from a snapshot refreshed on writes
+        DashboardSnapshot dashboard = dashboardService.getSnapshot();
         
-        model.addAttribute("totalBooks", totalBooks);
-        model.addAttribute("totalReviews", totalReviews);
-        model.addAttribute("recentBooks", recentBooks);
-        model.addAttribute("recentReviews", recentReviews);
+        model.addAttribute("totalBooks", dashboard.totalBooks());
+        model.addAttribute("totalReviews", dashboard.totalReviews());
+        model.addAttribute("recentActivityHtml", htmlFragments.render("home", "recentActivity", null,
+                dashboard.generation() + "@" + dashboard.builtAt().toEpochMilli(),
+                () -> Map.of("recentBooks", dashboard.recentBooks(), "recentReviews", dashboard.recentReviews())));
         
         return "home";
     }
     
+    @QueryBudget(0)
     @GetMapping("/about")
     public String about() {
         return "about";
@@ -0,0 +1,48 @@
+package com.bookreview.controller;
+
+import com.bookreview.cache.FragmentCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Renders th:fragment sections of the page templates on their own and caches the HTML in
+ * the FragmentCache. A page passes the result as a model attribute and inserts it with
+ * th:utext in place of the fragment, which it only renders itself when no HTML was passed.
+ */
+@Component
+class HtmlFragments {
+    
+    @Autowired
+    private ITemplateEngine templateEngine;
+    
+    @Autowired
+    private FragmentCache fragmentCache;
+    
+    // The HTML of template :: fragment for the given stamp, rendered with the supplied variables
+    // on a miss. Must be called while handling a request, since links are built against it.
+    String render(String template, String fragment, Long bookId, String stamp,
+                  Supplier<Map<String, Object>> variables) {
+        Locale locale = LocaleContextHolder.getLocale();
+        FragmentCache.Key key = new FragmentCache.Key(template + "::" + fragment, bookId, stamp, locale.toLanguageTag());
+        return fragmentCache.get(key, missing -> {
+            // The servlet context comes from the request, so the bean also exists without a web server
+            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+            JakartaServletWebApplication application =
+                    JakartaServletWebApplication.buildApplication(attributes.getRequest().getServletContext());
+            WebContext context = new WebContext(
+                    application.buildExchange(attributes.getRequest(), attributes.getResponse()), locale, variables.get());
+            return templateEngine.process(template, Set.of(fragment), context);
+        });
+    }
+}
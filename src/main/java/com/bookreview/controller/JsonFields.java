@@ -0,0 +1,92 @@
+package com.bookreview.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The fields of one JSON object type of the API, in output order, each written straight
+ * from a projection to a JsonGenerator. select() narrows them to the fields a client asked
+ * for with ?fields=, so list payloads carry only what the client uses.
+ */
+final class JsonFields<T> {
+    
+    @FunctionalInterface
+    private interface FieldWriter<T> {
+        void write(JsonGenerator generator, T row) throws IOException;
+    }
+    
+    private final Map<String, FieldWriter<T>> writers;
+    
+    private JsonFields(Map<String, FieldWriter<T>> writers) {
+        this.writers = writers;
+    }
+    
+    static <T> JsonFields<T> of() {
+        return new JsonFields<>(new LinkedHashMap<>());
+    }
+    
+    // A field holding a string, number or number array; other values, e.g. date-times, are written as strings
+    JsonFields<T> add(String name, Function<T, ?> getter) {
+        writers.put(name, (generator, row) -> writeValue(generator, getter.apply(row)));
+        return this;
+    }
+    
+    // The fields named in a comma-separated list, in declaration order; all of them when the list
+    // is missing or blank. Throws IllegalArgumentException for a name this type does not have.
+    JsonFields<T> select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return this;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!writers.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "', expected some of " + writers.keySet());
+            }
+            requested.add(name);
+        }
+        Map<String, FieldWriter<T>> selected = new LinkedHashMap<>();
+        writers.forEach((name, writer) -> {
+            if (requested.contains(name)) {
+                selected.put(name, writer);
+            }
+        });
+        return new JsonFields<>(selected);
+    }
+    
+    void write(JsonGenerator generator, T row) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, FieldWriter<T>> field : writers.entrySet()) {
+            generator.writeFieldName(field.getKey());
+            field.getValue().write(generator, row);
+        }
+        generator.writeEndObject();
+    }
+    
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String text) {
+            generator.writeString(text);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number);
+        } else if (value instanceof int[] numbers) {
+            generator.writeArray(numbers, 0, numbers.length);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.bookreview.controller;
+
+import com.bookreview.service.KeysetPage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes JSON API responses straight to the servlet output stream with a JsonGenerator,
+ * field by field from the projections, without building entity graphs, maps or a tree
+ * first. Lists are wrapped as {"items": [...], "next": cursor}, next being null on the
+ * last page.
+ */
+@Component
+class JsonResponseWriter {
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    <T> void writeObject(HttpServletResponse response, JsonFields<T> fields, T row) throws IOException {
+        try (JsonGenerator generator = open(response)) {
+            fields.write(generator, row);
+        }
+    }
+    
+    <T> void writePage(HttpServletResponse response, JsonFields<T> fields, KeysetPage<T> page) throws IOException {
+        writeItems(response, fields, page.items(), page.nextCursor());
+    }
+    
+    <T> void writeList(HttpServletResponse response, JsonFields<T> fields, List<T> rows) throws IOException {
+        writeItems(response, fields, rows, null);
+    }
+    
+    private <T> void writeItems(HttpServletResponse response, JsonFields<T> fields, List<T> rows,
+                                String next) throws IOException {
+        try (JsonGenerator generator = open(response)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("items");
+            for (T row : rows) {
+                fields.write(generator, row);
+            }
+            generator.writeEndArray();
+            generator.writeStringField("next", next);
+            generator.writeEndObject();
+        }
+    }
+    
+    private JsonGenerator open(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return objectMapper.getFactory().createGenerator(response.getOutputStream());
+    }
+}
@@ -0,0 +1,52 @@
+package com.bookreview.controller;
+
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.metrics.QueryBudget;
+import com.bookreview.model.ReviewDetail;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.service.ReviewService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * JSON read API for reviews: the latest reviews, newest first, with the start of each comment,
+ * and single reviews with the full comment. Supports ?fields= like BookApiController.
+ */
+@RestController
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
+@RequestMapping("/api/v1/reviews")
+public class ReviewApiController {
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private JsonResponseWriter jsonResponseWriter;
+    
+    @GetMapping
+    @QueryBudget(1)
+    public void listReviews(@RequestParam(required = false) String after,
+                            @RequestParam(required = false) Integer size,
+                            @RequestParam(required = false) String fields,
+                            HttpServletResponse response) throws IOException {
+        JsonFields<ReviewSummary> selected = ApiFields.select(ApiFields.REVIEW_SUMMARY, fields);
+        jsonResponseWriter.writePage(response, selected, reviewService.getReviewSummariesPage(after, size));
+    }
+    
+    @GetMapping("/{id}")
+    @QueryBudget(1)
+    public void getReview(@PathVariable Long id,
+                          @RequestParam(required = false) String fields,
+                          HttpServletResponse response) throws IOException {
+        JsonFields<ReviewDetail> selected = ApiFields.select(ApiFields.REVIEW_DETAIL, fields);
+        ReviewDetail review = reviewService.getReviewDetail(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Review " + id + " does not exist"));
+        jsonResponseWriter.writeObject(response, selected, review);
+    }
+}
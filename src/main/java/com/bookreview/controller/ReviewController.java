@@ -1,107 +1,200 @@
 package com.bookreview.controller;
 
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.metrics.QueryBudget;
 import com.bookreview.model.Book;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.EntityVersion;
 import com.bookreview.model.Review;
+import com.bookreview.model.ReviewSummary;
 import com.bookreview.service.BookService;
+import com.bookreview.service.KeysetPage;
 import com.bookreview.service.ReviewService;
+import com.bookreview.writebehind.ReviewWriteBehind;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
+@Timed(value = MetricsConfig.CONTROLLER_TIMER, histogram = true)
 @RequestMapping("/reviews")
 public class ReviewController {
     
+    // Other reviews of the same book shown below a review
+    private static final int OTHER_REVIEWS = 3;
+    
     @Autowired
     private ReviewService reviewService;
     
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private ConditionalGet conditionalGet;
+    
+    @Autowired
+    private HtmlFragments htmlFragments;
+    
+    @Autowired
+    private ReviewWriteBehind reviewWriteBehind;
+    
+    @QueryBudget(1)
     @GetMapping
-    public String listReviews(Model model) {
-        List<Review> reviews = reviewService.getAllReviews();
-        model.addAttribute("reviews", reviews);
+    public String listReviews(@RequestParam(required = false) String after,
+                              @RequestParam(required = false) Integer size,
+                              Model model) {
+        KeysetPage<ReviewSummary> page = reviewService.getReviewSummariesPage(after, size);
+        model.addAttribute("reviews", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("size", size);
         return "reviews/list";
     }
     
+    // Every review change moves the book version, so it also identifies this page
+    @QueryBudget(3)
     @GetMapping("/book/{bookId}")
-    public String reviewsByBook(@PathVariable Long bookId, Model model) {
-        Optional<Book> bookOpt = bookService.getBookById(bookId);
+    public String reviewsByBook(@PathVariable Long bookId,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) Integer size,
+                                ServletWebRequest webRequest,
+                                Model model) {
+        Optional<EntityVersion> version = bookService.getBookVersion(bookId);
+        if (conditionalGet.notModified(webRequest, version)) {
+            return null;
+        }
+        Optional<Book> bookOpt = version.flatMap(current -> bookService.getBookAtVersion(bookId, current));
         if (bookOpt.isEmpty()) {
             return "redirect:/books";
         }
         
-        List<Review> reviews = reviewService.getReviewsByBookId(bookId);
-        model.addAttribute("reviews", reviews);
-        model.addAttribute("book", bookOpt.get());
+        Book book = bookOpt.get();
+        conditionalGet.describe(webRequest, EntityVersion.of(book));
+        KeysetPage<ReviewSummary> page = reviewService.getReviewSummariesPageByBookId(bookId, book.getVersion(), after, size);
+        model.addAttribute("reviews", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("size", size);
+        model.addAttribute("book", book);
+        if (!page.items().isEmpty()) {
+            String stamp = book.getVersion() + "-" + book.getReviewCount() + "/" + after + "/" + size;
+            model.addAttribute("reviewCardsHtml", htmlFragments.render("reviews/list", "reviewCards", bookId, stamp,
+                    () -> Map.of("book", book, "reviews", page.items())));
+        }
         return "reviews/list";
     }
     
+    // Without a book, the form offers a picker: one page of book summaries, or the matches of a search
+    @QueryBudget(2)
     @GetMapping("/new")
-    public String showCreateForm(@RequestParam(required = false) Long bookId, Model model) {
+    public String showCreateForm(@RequestParam(required = false) Long bookId,
+                                 @RequestParam(required = false) String search,
+                                 @RequestParam(required = false) String after,
+                                 Model model) {
         Review review = new Review();
         model.addAttribute("review", review);
         
-        if (bookId != null) {
-            Optional<Book> bookOpt = bookService.getBookById(bookId);
-            if (bookOpt.isPresent()) {
-                model.addAttribute("selectedBook", bookOpt.get());
-            }
-        }
-        
-        List<Book> books = bookService.getAllBooks();
-        model.addAttribute("books", books);
+        Optional<Book> bookOpt = bookId == null ? Optional.empty() : bookService.getBookById(bookId);
+        bookOpt.ifPresentOrElse(book -> model.addAttribute("selectedBook", book),
+                () -> addBookPicker(search, after, model));
         return "reviews/create";
     }
     
+    // With write-behind enabled the review is queued rather than written on the request thread;
+    // when the queue is full the form comes back with 503 and Retry-After
+    @QueryBudget(4)
     @PostMapping("/new")
     public String createReview(@Valid @ModelAttribute Review review,
-                             @RequestParam Long bookId,
                              BindingResult result,
+                             @RequestParam Long bookId,
                              Model model,
+                             HttpServletResponse response,
                              RedirectAttributes redirectAttributes) {
         
+        Optional<Book> bookOpt = bookService.getBookById(bookId);
         if (result.hasErrors()) {
-            List<Book> books = bookService.getAllBooks();
-            model.addAttribute("books", books);
-            Optional<Book> bookOpt = bookService.getBookById(bookId);
-            if (bookOpt.isPresent()) {
-                model.addAttribute("selectedBook", bookOpt.get());
-            }
-            return "reviews/create";
+            return showCreateFormAgain(bookOpt, model);
         }
         
-        Optional<Book> bookOpt = bookService.getBookById(bookId);
         if (bookOpt.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "Book not found!");
             return "redirect:/books";
         }
         
         review.setBook(bookOpt.get());
-        reviewService.saveReview(review);
-        redirectAttributes.addFlashAttribute("successMessage", "Review created successfully!");
+        switch (reviewWriteBehind.submit(review)) {
+            case QUEUED -> redirectAttributes.addFlashAttribute("successMessage",
+                    "Review received! It will appear in a moment.");
+            case REJECTED -> {
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(reviewWriteBehind.getRetryAfter().toSeconds()));
+                model.addAttribute("errorMessage", "We are receiving a lot of reviews right now. Please submit again in a moment.");
+                return showCreateFormAgain(bookOpt, model);
+            }
+            case WRITE_NOW -> {
+                reviewService.saveReview(review);
+                redirectAttributes.addFlashAttribute("successMessage", "Review created successfully!");
+            }
+        }
         return "redirect:/books/" + bookId;
     }
     
+    private String showCreateFormAgain(Optional<Book> bookOpt, Model model) {
+        bookOpt.ifPresentOrElse(book -> model.addAttribute("selectedBook", book),
+                () -> addBookPicker(null, null, model));
+        return "reviews/create";
+    }
+    
+    private void addBookPicker(String search, String after, Model model) {
+        if (search != null && !search.trim().isEmpty()) {
+            model.addAttribute("books", bookService.searchBookSummaries(search));
+            model.addAttribute("search", search);
+        } else {
+            KeysetPage<BookSummary> page = bookService.getBookSummariesPage(after, null);
+            model.addAttribute("books", page.items());
+            model.addAttribute("nextCursor", page.nextCursor());
+        }
+    }
+    
+    // The page shows the review, its book and the book's other reviews: the review and book
+    // versions cover all three
+    @QueryBudget(3)
     @GetMapping("/{id}")
-    public String viewReview(@PathVariable Long id, Model model) {
-        Optional<Review> reviewOpt = reviewService.getReviewById(id);
+    public String viewReview(@PathVariable Long id, ServletWebRequest webRequest, Model model) {
+        Optional<EntityVersion> version = reviewService.getReviewVersion(id);
+        if (conditionalGet.notModified(webRequest, version)) {
+            return null;
+        }
+        Optional<Review> reviewOpt = version.flatMap(current -> reviewService.getReviewAtVersion(id, current));
         if (reviewOpt.isEmpty()) {
             return "redirect:/reviews";
         }
         
-        model.addAttribute("review", reviewOpt.get());
+        Review review = reviewOpt.get();
+        conditionalGet.describe(webRequest, EntityVersion.of(review));
+        List<ReviewSummary> otherReviews = reviewService
+                .getReviewSummariesPageByBookId(review.getBook().getId(), review.getBook().getVersion(), null, OTHER_REVIEWS + 1)
+                .items().stream()
+                .filter(other -> !other.id().equals(id))
+                .limit(OTHER_REVIEWS)
+                .toList();
+        model.addAttribute("review", review);
+        model.addAttribute("otherReviews", otherReviews);
         return "reviews/view";
     }
     
+    @QueryBudget(1)
     @GetMapping("/{id}/edit")
     public String showEditForm(@PathVariable Long id, Model model) {
         Optional<Review> reviewOpt = reviewService.getReviewById(id);
@@ -113,6 +206,8 @@ public class ReviewController {
         return "reviews/edit";
     }
     
+    // Once committed, the book's rating aggregates are read back for the leaderboard
+    @QueryBudget(5)
     @PostMapping("/{id}/edit")
     public String updateReview(@PathVariable Long id,
                              @Valid @ModelAttribute Review review,
@@ -138,6 +233,9 @@ public class ReviewController {
         return "redirect:/reviews/" + id;
     }
     
+    // The delete reads the review again in its own read-write transaction (on the primary), and
+    // the book's rating aggregates are read back for the leaderboard once it is committed
+    @QueryBudget(5)
     @PostMapping("/{id}/delete")
     public String deleteReview(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         Optional<Review> reviewOpt = reviewService.getReviewById(id);
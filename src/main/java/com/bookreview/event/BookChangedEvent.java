@@ -0,0 +1,8 @@
+package com.bookreview.event;
+
+/**
+ * Published by BookService after a book is created, updated or deleted.
+ * Deleting a book also deletes its reviews; no ReviewChangedEvent is published for those.
+ */
+public record BookChangedEvent(Long bookId, ChangeType type) {
+}
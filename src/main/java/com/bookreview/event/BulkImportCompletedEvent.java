@@ -0,0 +1,11 @@
+package com.bookreview.event;
+
+/**
+ * Published after a bulk import finished. Imports write rows directly, without the
+ * per-entity change events, so anything derived from books or reviews must be rebuilt.
+ */
+public record BulkImportCompletedEvent(String entity, long rowsImported) {
+    
+    public static final String BOOKS = "books";
+    public static final String REVIEWS = "reviews";
+}
@@ -0,0 +1,7 @@
+package com.bookreview.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,9 @@
+package com.bookreview.event;
+
+/**
+ * Published by RatingAggregateRepairJob after it recomputed the rating aggregates of every
+ * drifted book. The books it corrected are not announced one by one, so listeners treat every
+ * book as changed when booksUpdated is not zero.
+ */
+public record RatingAggregatesRepairedEvent(int booksUpdated) {
+}
@@ -0,0 +1,8 @@
+package com.bookreview.event;
+
+/**
+ * Published by ReviewService after a review is created, updated or deleted.
+ * Every review change also changes the rating aggregates of bookId.
+ */
+public record ReviewChangedEvent(Long reviewId, Long bookId, ChangeType type) {
+}
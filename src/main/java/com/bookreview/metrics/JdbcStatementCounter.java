@@ -0,0 +1,54 @@
+package com.bookreview.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate StatementInspector that counts the JDBC statements Hibernate prepares, in
+ * total (bookreview.jdbc.statements) and per thread between start() and stop(), which
+ * StatementCountFilter uses to measure statements per request. Batched inserts count once
+ * per batch. Registered with Hibernate by MetricsConfig.
+ */
+@Component
+public class JdbcStatementCounter implements StatementInspector {
+    
+    private final ThreadLocal<int[]> current = new ThreadLocal<>();
+    
+    private final Counter total;
+    
+    public JdbcStatementCounter(MeterRegistry meterRegistry) {
+        this.total = Counter.builder("bookreview.jdbc.statements")
+                .description("JDBC statements prepared by Hibernate")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public String inspect(String sql) {
+        total.increment();
+        int[] count = current.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+    
+    // Start counting the statements of the current thread
+    public void start() {
+        current.set(new int[1]);
+    }
+    
+    // Statements counted on the current thread since start(), without stopping
+    public int count() {
+        int[] count = current.get();
+        return count == null ? 0 : count[0];
+    }
+    
+    // Stop counting on the current thread and return the count
+    public int stop() {
+        int statements = count();
+        current.remove();
+        return statements;
+    }
+}
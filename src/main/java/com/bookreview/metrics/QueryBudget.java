@@ -0,0 +1,20 @@
+package com.bookreview.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most JDBC statements a request handler may issue, including lazy loads while its view
+ * renders. QueryBudgetTest enforces it against a seeded database with cold caches, so a new
+ * N+1 query fails the build; at runtime StatementCountFilter counts requests over budget.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    
+    int value();
+}
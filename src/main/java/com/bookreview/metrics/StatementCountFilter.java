@@ -0,0 +1,70 @@
+package com.bookreview.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many JDBC statements each request issued, as the distribution summary
+ * bookreview.jdbc.statements.per.request tagged with the request method and URI pattern
+ * (the same tags as http.server.requests), and counts requests whose handler went over its
+ * QueryBudget as bookreview.jdbc.budget.exceeded.
+ */
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+    
+    private final JdbcStatementCounter statementCounter;
+    
+    private final MeterRegistry meterRegistry;
+    
+    public StatementCountFilter(JdbcStatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        statementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = statementCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("bookreview.jdbc.statements.per.request")
+                    .description("JDBC statements issued while handling a request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(meterRegistry)
+                    .record(statements);
+            checkBudget(request, uri, statements);
+        }
+    }
+    
+    // Budgets are enforced by QueryBudgetTest; in production an overrun is only counted
+    private void checkBudget(HttpServletRequest request, String uri, int statements) {
+        if (!(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler)) {
+            return;
+        }
+        QueryBudget budget = handler.getMethodAnnotation(QueryBudget.class);
+        if (budget != null && statements > budget.value()) {
+            logger.debug(request.getMethod() + " " + uri + " issued " + statements
+                    + " JDBC statements, over its budget of " + budget.value());
+            meterRegistry.counter("bookreview.jdbc.budget.exceeded", "method", request.getMethod(), "uri", uri)
+                    .increment();
+        }
+    }
+}
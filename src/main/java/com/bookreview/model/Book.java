@@ -2,15 +2,20 @@ package com.bookreview.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
 
 @Entity
+// The indexes are created by the migrations in db/migration, one per repository query shape
 @Table(name = "books")
 public class Book {
+    // Sequence ids (allocated in blocks) let Hibernate batch inserts; IDENTITY forces one insert per round trip
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Title is required")
@@ -24,6 +29,11 @@ public class Book {
     @Size(max = 50, message = "Genre must not exceed 50 characters")
     private String genre;
     
+    // Normalized genre, resolved from the genre text by BookService on every save
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "genre_id")
+    private Genre genreRef;
+    
     @Size(max = 20, message = "ISBN must not exceed 20 characters")
     private String isbn;
     
@@ -36,9 +46,50 @@ public class Book {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
+    // Incremented by every change to the book or one of its reviews; together with updatedAt it drives the ETag and
+    // Last-Modified headers of the book pages
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Review> reviews = new ArrayList<>();
     
+    // Rating aggregates, maintained by ReviewService through BookRepository.adjustRatingAggregates
+    // and repaired by RatingAggregateRepairJob. Never written by entity updates, so a form-bound
+    // Book cannot reset them.
+    @ColumnDefault("0")
+    @Column(name = "review_count", nullable = false, updatable = false)
+    private int reviewCount;
+    
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private long ratingSum;
+    
+    @ColumnDefault("0")
+    @Column(name = "rating_1_count", nullable = false, updatable = false)
+    private int rating1Count;
+    
+    @ColumnDefault("0")
+    @Column(name = "rating_2_count", nullable = false, updatable = false)
+    private int rating2Count;
+    
+    @ColumnDefault("0")
+    @Column(name = "rating_3_count", nullable = false, updatable = false)
+    private int rating3Count;
+    
+    @ColumnDefault("0")
+    @Column(name = "rating_4_count", nullable = false, updatable = false)
+    private int rating4Count;
+    
+    @ColumnDefault("0")
+    @Column(name = "rating_5_count", nullable = false, updatable = false)
+    private int rating5Count;
+    
     // Constructors
     public Book() {
         this.createdAt = LocalDateTime.now();
@@ -87,6 +138,14 @@ public class Book {
         this.genre = genre;
     }
     
+    public Genre getGenreRef() {
+        return genreRef;
+    }
+    
+    public void setGenreRef(Genre genreRef) {
+        this.genreRef = genreRef;
+    }
+    
     public String getIsbn() {
         return isbn;
     }
@@ -128,17 +187,37 @@ public class Book {
     }
     
     public double getAverageRating() {
-        if (reviews.isEmpty()) {
+        if (reviewCount == 0) {
             return 0.0;
         }
-        return reviews.stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
+        return (double) ratingSum / reviewCount;
     }
     
     public int getReviewCount() {
-        return reviews.size();
+        return reviewCount;
+    }
+    
+    public long getRatingSum() {
+        return ratingSum;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    // Number of reviews per rating; index 0 holds the 1-star count, index 4 the 5-star count
+    public int[] getRatingHistogram() {
+        return new int[] { rating1Count, rating2Count, rating3Count, rating4Count, rating5Count };
     }
     
     @Override
@@ -0,0 +1,27 @@
+package com.bookreview.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Every column of a single book except its reviews and rating histogram, selected by
+ * BookRepository.findDetailById.
+ */
+public record BookDetail(Long id,
+                         String title,
+                         String author,
+                         String genre,
+                         String isbn,
+                         String description,
+                         Integer publicationYear,
+                         LocalDateTime createdAt,
+                         LocalDateTime updatedAt,
+                         int reviewCount,
+                         double averageRating) {
+    
+    public BookDetail(Long id, String title, String author, String genre, String isbn, String description,
+                      Integer publicationYear, LocalDateTime createdAt, LocalDateTime updatedAt,
+                      int reviewCount, long ratingSum) {
+        this(id, title, author, genre, isbn, description, publicationYear, createdAt, updatedAt, reviewCount,
+                reviewCount == 0 ? 0.0 : (double) ratingSum / reviewCount);
+    }
+}
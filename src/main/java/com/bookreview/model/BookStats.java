@@ -0,0 +1,24 @@
+package com.bookreview.model;
+
+/**
+ * The stored rating aggregates of a book: its review count, rating sum and how many
+ * reviews gave each star rating.
+ */
+public record BookStats(Long bookId,
+                        int reviewCount,
+                        long ratingSum,
+                        int rating1Count,
+                        int rating2Count,
+                        int rating3Count,
+                        int rating4Count,
+                        int rating5Count) {
+    
+    public double averageRating() {
+        return reviewCount == 0 ? 0.0 : (double) ratingSum / reviewCount;
+    }
+    
+    // Review count per star rating, index 0 holding the 1-star count
+    public int[] histogram() {
+        return new int[] { rating1Count, rating2Count, rating3Count, rating4Count, rating5Count };
+    }
+}
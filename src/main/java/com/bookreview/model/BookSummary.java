@@ -0,0 +1,25 @@
+package com.bookreview.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a book that listings show, selected by the summary queries of BookRepository
+ * without loading the entity. Instead of the description TEXT column they carry only its first
+ * BookRepository.DESCRIPTION_SNIPPET_LENGTH characters, cut in SQL.
+ */
+public record BookSummary(Long id,
+                          String title,
+                          String author,
+                          String genre,
+                          Integer publicationYear,
+                          String descriptionSnippet,
+                          LocalDateTime createdAt,
+                          int reviewCount,
+                          double averageRating) {
+    
+    public BookSummary(Long id, String title, String author, String genre, Integer publicationYear,
+                       String descriptionSnippet, LocalDateTime createdAt, int reviewCount, long ratingSum) {
+        this(id, title, author, genre, publicationYear, descriptionSnippet, createdAt, reviewCount,
+                reviewCount == 0 ? 0.0 : (double) ratingSum / reviewCount);
+    }
+}
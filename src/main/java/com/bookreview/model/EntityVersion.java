@@ -0,0 +1,41 @@
+package com.bookreview.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version and last-modified time of a book or review page, read by the version-only
+ * queries of the repositories without loading the entities.
+ */
+public record EntityVersion(String tag, LocalDateTime lastModified) {
+    
+    public EntityVersion(Long version, LocalDateTime updatedAt, LocalDateTime createdAt) {
+        this(String.valueOf(version), updatedAt != null ? updatedAt : createdAt);
+    }
+    
+    // A review page also shows its book, so it changes with either version
+    public EntityVersion(Long reviewVersion, LocalDateTime reviewUpdatedAt, LocalDateTime reviewCreatedAt,
+                         Long bookVersion, LocalDateTime bookUpdatedAt, LocalDateTime bookCreatedAt) {
+        this(reviewVersion + "." + bookVersion, latest(
+                reviewUpdatedAt != null ? reviewUpdatedAt : reviewCreatedAt,
+                bookUpdatedAt != null ? bookUpdatedAt : bookCreatedAt));
+    }
+    
+    // The version of a book as loaded, e.g. from the cache
+    public static EntityVersion of(Book book) {
+        return new EntityVersion(book.getVersion(), book.getUpdatedAt(), book.getCreatedAt());
+    }
+    
+    // The version of a review page as loaded; the review must carry its book
+    public static EntityVersion of(Review review) {
+        Book book = review.getBook();
+        return new EntityVersion(review.getVersion(), review.getUpdatedAt(), review.getCreatedAt(),
+                book.getVersion(), book.getUpdatedAt(), book.getCreatedAt());
+    }
+    
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,85 @@
+package com.bookreview.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.util.Locale;
+
+/**
+ * A genre, shared by all books whose genre text normalizes to the same name. bookCount is
+ * maintained by GenreService as books are written, so genre facets never count books.
+ */
+@Entity
+@Table(name = "genres")
+public class Genre {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genres_seq")
+    @SequenceGenerator(name = "genres_seq", sequenceName = "genres_seq", allocationSize = 50)
+    private Long id;
+    
+    // Display name, as first entered
+    @Column(nullable = false, length = 50)
+    private String name;
+    
+    @Column(name = "normalized_name", nullable = false, unique = true, length = 50)
+    private String normalizedName;
+    
+    @ColumnDefault("0")
+    @Column(name = "book_count", nullable = false, updatable = false)
+    private int bookCount;
+    
+    // Constructors
+    public Genre() {
+    }
+    
+    public Genre(String name) {
+        this.name = name.trim();
+        this.normalizedName = normalize(name);
+    }
+    
+    // Lower-case with surrounding and repeated whitespace removed; null for blank names
+    public static String normalize(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+    
+    public void setNormalizedName(String normalizedName) {
+        this.normalizedName = normalizedName;
+    }
+    
+    public int getBookCount() {
+        return bookCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "Genre{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", bookCount=" + bookCount +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.bookreview.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Highest journal sequence whose entries have been written to the database, per journal.
+ * Updated in the same transaction as the rows it covers, so a journal replayed after a
+ * crash never writes an entry twice. Each instance has its own journal, named after its node id.
+ */
+@Entity
+@Table(name = "journal_checkpoints")
+public class JournalCheckpoint {
+    @Id
+    @Column(length = 150)
+    private String journal;
+    
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+    
+    // Constructors
+    public JournalCheckpoint() {
+    }
+    
+    public JournalCheckpoint(String journal) {
+        this.journal = journal;
+    }
+    
+    // Getters and Setters
+    public String getJournal() {
+        return journal;
+    }
+    
+    public long getLastSequence() {
+        return lastSequence;
+    }
+    
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+}
@@ -2,13 +2,17 @@ package com.bookreview.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "reviews")
 public class Review {
+    // Sequence ids (allocated in blocks) let Hibernate batch inserts; IDENTITY forces one insert per round trip
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reviews_seq")
+    @SequenceGenerator(name = "reviews_seq", sequenceName = "reviews_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Reviewer name is required")
@@ -33,6 +37,16 @@ public class Review {
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
     
+    // Incremented by every change to the review; together with updatedAt it drives the ETag and
+    // Last-Modified headers of the review pages
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
     // Constructors
     public Review() {
         this.createdAt = LocalDateTime.now();
@@ -95,6 +109,20 @@ public class Review {
         this.book = book;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
+    
     @Override
     public String toString() {
         return "Review{" +
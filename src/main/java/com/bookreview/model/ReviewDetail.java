@@ -0,0 +1,17 @@
+package com.bookreview.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single review with its full comment and the id and title of its book, selected by
+ * ReviewRepository.findDetailById.
+ */
+public record ReviewDetail(Long id,
+                           Long bookId,
+                           String bookTitle,
+                           String reviewerName,
+                           Integer rating,
+                           String comment,
+                           LocalDateTime createdAt,
+                           LocalDateTime updatedAt) {
+}
@@ -0,0 +1,19 @@
+package com.bookreview.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A review as listings show it, with the title and author of its book, selected by the summary
+ * queries of ReviewRepository in one statement instead of loading the review and its book
+ * entity. Instead of the comment TEXT column it carries only its first
+ * ReviewRepository.COMMENT_SNIPPET_LENGTH characters, cut in SQL.
+ */
+public record ReviewSummary(Long id,
+                            Long bookId,
+                            String bookTitle,
+                            String bookAuthor,
+                            String reviewerName,
+                            Integer rating,
+                            String commentSnippet,
+                            LocalDateTime createdAt) {
+}
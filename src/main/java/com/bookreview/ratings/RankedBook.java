@@ -0,0 +1,9 @@
+package com.bookreview.ratings;
+
+import com.bookreview.model.BookSummary;
+
+/**
+ * A book's place on a rating leaderboard, counting from 1, with the weighted rating it is ranked by.
+ */
+public record RankedBook(int rank, BookSummary book, double weightedRating) {
+}
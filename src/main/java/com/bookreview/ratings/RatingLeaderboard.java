@@ -0,0 +1,166 @@
+package com.bookreview.ratings;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Books with at least one review, ranked by their Bayesian average rating, overall and
+ * per genre.
+ *
+ * A book's weighted rating is (priorWeight * priorMean + ratingSum) / (priorWeight + reviewCount),
+ * its average pulled towards priorMean as if it had priorWeight more reviews of that rating,
+ * so a single five-star review does not top the board. The prior is fixed for the lifetime of a
+ * leaderboard, which keeps every other book's rank unchanged when one book is updated: an update
+ * is a removal and an insertion in two sorted sets, O(log n). Each book carries the version of
+ * the row its figures were read from, and an update read before the one already held is ignored.
+ */
+public class RatingLeaderboard {
+    
+    // Best first; ties go to the book with more reviews, then the older one
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble((Entry entry) -> entry.stats().weightedRating()).reversed()
+            .thenComparing(Comparator.comparingInt((Entry entry) -> entry.stats().reviewCount()).reversed())
+            .thenComparingLong(entry -> entry.stats().bookId());
+    
+    private final double priorMean;
+    
+    private final double priorWeight;
+    
+    private final Map<Long, Entry> entries = new HashMap<>();
+    
+    private final NavigableSet<Entry> overall = new TreeSet<>(RANKING);
+    
+    private final Map<String, NavigableSet<Entry>> byGenre = new HashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // genre is the normalized genre name, null for a book without one
+    private record Entry(RatingStats stats, String genre, long version) {
+    }
+    
+    public RatingLeaderboard(double priorMean, double priorWeight) {
+        this.priorMean = priorMean;
+        this.priorWeight = priorWeight;
+    }
+    
+    public double getPriorMean() {
+        return priorMean;
+    }
+    
+    // Rating statistics of a book from its stored aggregates, weighted with this leaderboard's prior
+    public RatingStats stats(Long bookId, int[] histogram) {
+        int reviewCount = 0;
+        long ratingSum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            reviewCount += histogram[i];
+            ratingSum += (long) histogram[i] * (i + 1);
+        }
+        double weightedRating = (priorWeight * priorMean + ratingSum) / (priorWeight + reviewCount);
+        return new RatingStats(bookId, reviewCount, ratingSum, histogram, weightedRating);
+    }
+    
+    // Insert or replace a book, or drop it when it has no reviews left
+    public void put(long bookId, long version, String genre, int[] histogram) {
+        RatingStats stats = stats(bookId, histogram);
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(bookId);
+            if (previous != null) {
+                if (previous.version() > version) {
+                    return;
+                }
+                unlink(previous);
+            }
+            if (stats.reviewCount() > 0) {
+                Entry entry = new Entry(stats, genre, version);
+                entries.put(bookId, entry);
+                overall.add(entry);
+                if (genre != null) {
+                    byGenre.computeIfAbsent(genre, key -> new TreeSet<>(RANKING)).add(entry);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long bookId) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(bookId);
+            if (previous != null) {
+                unlink(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean contains(long bookId) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public Optional<RatingStats> get(long bookId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(bookId);
+            return entry == null ? Optional.empty() : Optional.of(entry.stats());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // The best-rated books of a normalized genre, or of all genres when genre is null
+    public List<RatingStats> top(String genre, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> ranking = genre == null ? overall : byGenre.get(genre);
+            if (ranking == null) {
+                return List.of();
+            }
+            List<RatingStats> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            Iterator<Entry> iterator = ranking.iterator();
+            while (top.size() < limit && iterator.hasNext()) {
+                top.add(iterator.next().stats());
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void unlink(Entry entry) {
+        entries.remove(entry.stats().bookId());
+        overall.remove(entry);
+        if (entry.genre() != null) {
+            NavigableSet<Entry> ranking = byGenre.get(entry.genre());
+            ranking.remove(entry);
+            if (ranking.isEmpty()) {
+                byGenre.remove(entry.genre());
+            }
+        }
+    }
+}
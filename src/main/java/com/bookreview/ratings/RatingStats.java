@@ -0,0 +1,22 @@
+package com.bookreview.ratings;
+
+/**
+ * Rating statistics of one book: its review count and rating sum, how many reviews gave each
+ * star rating, and the Bayesian average its leaderboard rank is based on.
+ */
+public record RatingStats(Long bookId, int reviewCount, long ratingSum, int[] histogram, double weightedRating) {
+    
+    public RatingStats {
+        histogram = histogram.clone();
+    }
+    
+    public double averageRating() {
+        return reviewCount == 0 ? 0.0 : (double) ratingSum / reviewCount;
+    }
+    
+    // Review count per star rating, index 0 holding the 1-star count
+    @Override
+    public int[] histogram() {
+        return histogram.clone();
+    }
+}
@@ -0,0 +1,237 @@
+package com.bookreview.ratings;
+
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.event.ChangeType;
+import com.bookreview.event.RatingAggregatesRepairedEvent;
+import com.bookreview.event.ReviewChangedEvent;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.Genre;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.service.KeysetPage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Per-book rating statistics and top-rated leaderboards, served from an in-process
+ * RatingLeaderboard.
+ *
+ * The leaderboard is loaded in the background once the application is ready, with the mean
+ * rating over all reviews as the prior of its Bayesian averages, and rebuilt (with a fresh
+ * prior) after bulk imports and after the rating aggregate repair job. In between, each review
+ * or book change re-reads the rating aggregates of that one book by id once it is committed.
+ * Until the first load finishes, statistics are read from the books table and the leaderboard
+ * is reported as not ready.
+ */
+@Service
+public class RatingStatsService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RatingStatsService.class);
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    // Prior mean before the first load, and when there are no reviews to take it from
+    private static final double MIDPOINT_RATING = 3.0;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Value("${bookreview.ratings.leaderboard.default-size:10}")
+    private int defaultSize;
+    
+    @Value("${bookreview.ratings.leaderboard.max-size:100}")
+    private int maxSize;
+    
+    private final double priorWeight;
+    
+    private volatile RatingLeaderboard leaderboard;
+    
+    private volatile boolean ready;
+    
+    // Books changed while the leaderboard was loading; re-read once the load finishes
+    private Set<Long> changedDuringLoad;
+    
+    // Serializes rebuilds; a reload requested while one runs starts after it
+    private final Object rebuildLock = new Object();
+    
+    public RatingStatsService(MeterRegistry meterRegistry,
+                              @Value("${bookreview.ratings.prior-weight:10}") double priorWeight) {
+        this.priorWeight = priorWeight;
+        this.leaderboard = new RatingLeaderboard(MIDPOINT_RATING, priorWeight);
+        Gauge.builder("bookreview.ratings.leaderboard.books", this, service -> service.leaderboard.size())
+                .description("Books with reviews held by the in-memory rating leaderboard")
+                .register(meterRegistry);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    // A book with reviews is answered from memory; one without, or any book before the first load,
+    // from its stored aggregates. Empty when the book does not exist.
+    public Optional<RatingStats> getStats(Long bookId) {
+        RatingLeaderboard current = leaderboard;
+        Optional<RatingStats> stats = current.get(bookId);
+        if (stats.isPresent()) {
+            return stats;
+        }
+        return bookRepository.findStatsById(bookId).map(row -> current.stats(row.bookId(), row.histogram()));
+    }
+    
+    // The best-rated books, overall or of one genre (matched as GenreService matches genre names;
+    // a blank genre means overall), with their summaries; at most bookreview.ratings.leaderboard.max-size
+    public List<RankedBook> getTopRated(String genre, Integer size) {
+        int limit = KeysetPage.resolvePageSize(size, defaultSize, maxSize);
+        List<RatingStats> top = leaderboard.top(Genre.normalize(genre), limit);
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, BookSummary> summaries = bookRepository.findSummariesByIdIn(top.stream().map(RatingStats::bookId).toList())
+                .stream()
+                .collect(Collectors.toMap(BookSummary::id, Function.identity()));
+        List<RankedBook> ranked = new ArrayList<>(top.size());
+        for (RatingStats stats : top) {
+            BookSummary summary = summaries.get(stats.bookId());
+            if (summary != null) {
+                ranked.add(new RankedBook(ranked.size() + 1, summary, stats.weightedRating()));
+            }
+        }
+        return ranked;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::rebuild, "rating-leaderboard-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    // Imported reviews are not announced one by one, so the leaderboard is reloaded after an import
+    @EventListener
+    public void onBulkImportCompleted(BulkImportCompletedEvent event) {
+        loadInBackground();
+    }
+    
+    // The repair job may have corrected any book, and the prior is due a refresh anyway
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingAggregatesRepaired(RatingAggregatesRepairedEvent event) {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        recordChange(event.bookId());
+        refresh(leaderboard, List.of(event.bookId()));
+    }
+    
+    // Only a book already on the leaderboard can have changed place: a new book has no reviews yet
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        recordChange(event.bookId());
+        RatingLeaderboard current = leaderboard;
+        if (event.type() == ChangeType.DELETED) {
+            current.remove(event.bookId());
+        } else if (current.contains(event.bookId())) {
+            refresh(current, List.of(event.bookId()));
+        }
+    }
+    
+    // Load a new leaderboard from the books table, in id order, and swap it in
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            load();
+        }
+    }
+    
+    private void load() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            changedDuringLoad = new HashSet<>();
+        }
+        List<Object[]> rows = new ArrayList<>();
+        long afterId = 0;
+        List<Object[]> batch;
+        do {
+            batch = bookRepository.findRatingAggregatesAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+            rows.addAll(batch);
+            if (!batch.isEmpty()) {
+                afterId = (Long) batch.get(batch.size() - 1)[0];
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        
+        // The prior is the mean rating over all reviews, so it must be known before any book is ranked
+        long reviewCount = 0;
+        long ratingSum = 0;
+        for (Object[] row : rows) {
+            int[] histogram = histogram(row);
+            for (int i = 0; i < histogram.length; i++) {
+                reviewCount += histogram[i];
+                ratingSum += (long) histogram[i] * (i + 1);
+            }
+        }
+        double priorMean = reviewCount == 0 ? MIDPOINT_RATING : (double) ratingSum / reviewCount;
+        RatingLeaderboard loaded = new RatingLeaderboard(priorMean, priorWeight);
+        rows.forEach(row -> put(loaded, row));
+        
+        Set<Long> changed;
+        synchronized (this) {
+            changed = changedDuringLoad;
+            changedDuringLoad = null;
+            leaderboard = loaded;
+        }
+        if (!changed.isEmpty()) {
+            refresh(loaded, changed);
+        }
+        ready = true;
+        logger.info("Rating leaderboard loaded {} books with a prior mean of {} in {} ms",
+                loaded.size(), String.format("%.2f", priorMean), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    private synchronized void recordChange(Long bookId) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(bookId);
+        }
+    }
+    
+    // Re-read the aggregates of the given books; those no longer in the books table are dropped
+    private void refresh(RatingLeaderboard board, Collection<Long> bookIds) {
+        Set<Long> missing = new HashSet<>(bookIds);
+        for (Object[] row : bookRepository.findRatingAggregatesByIdIn(bookIds)) {
+            missing.remove((Long) row[0]);
+            put(board, row);
+        }
+        missing.forEach(board::remove);
+    }
+    
+    // row is [id, version, genre, rating1Count, ..., rating5Count]
+    private static void put(RatingLeaderboard board, Object[] row) {
+        board.put((Long) row[0], (Long) row[1], Genre.normalize((String) row[2]), histogram(row));
+    }
+    
+    private static int[] histogram(Object[] row) {
+        int[] histogram = new int[5];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = (Integer) row[3 + i];
+        }
+        return histogram;
+    }
+}
@@ -1,23 +1,57 @@
 package com.bookreview.repository;
 
 import com.bookreview.model.Book;
+import com.bookreview.model.BookDetail;
+import com.bookreview.model.BookStats;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.EntityVersion;
+import com.bookreview.model.Genre;
+import com.bookreview.schema.ExpectedFullScan;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
     
+    // Rows per round trip when streaming exports
+    int EXPORT_FETCH_SIZE = 500;
+    
+    // Characters of the description that listings read; templates abbreviate to less than this,
+    // so a longer description still ends in an ellipsis
+    int DESCRIPTION_SNIPPET_LENGTH = 200;
+    
+    // Select clause of the summary queries, for lists that show books without their full description
+    String SUMMARY = "new com.bookreview.model.BookSummary(b.id, b.title, b.author, b.genre, b.publicationYear, " +
+            "SUBSTRING(b.description, 1, " + DESCRIPTION_SNIPPET_LENGTH + "), b.createdAt, b.reviewCount, b.ratingSum)";
+    
+    // Review counts per star rating, 1 to 5
+    String RATING_COUNTS = "b.rating1Count, b.rating2Count, b.rating3Count, b.rating4Count, b.rating5Count";
+    
     // Find books by title containing keyword (case insensitive)
+    @ExpectedFullScan("LIKE with a leading wildcard; searches go through BookSearchIndex")
     List<Book> findByTitleContainingIgnoreCase(String title);
     
     // Find books by author containing keyword (case insensitive)
+    @ExpectedFullScan("LIKE with a leading wildcard; searches go through BookSearchIndex")
     List<Book> findByAuthorContainingIgnoreCase(String author);
     
     // Find books by genre
+    @ExpectedFullScan("LIKE with a leading wildcard; searches go through BookSearchIndex")
     List<Book> findByGenreContainingIgnoreCase(String genre);
     
     // Find books by publication year
@@ -27,12 +61,183 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     List<Book> findByPublicationYearBetween(Integer startYear, Integer endYear);
     
     // Custom query to search books by title or author
+    @ExpectedFullScan("LIKE with a leading wildcard; searches go through BookSearchIndex")
     @Query("SELECT b FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<Book> findByTitleOrAuthorContaining(@Param("keyword") String keyword);
     
     // Find books ordered by creation date (newest first)
+    @ExpectedFullScan("returns every book")
     List<Book> findAllByOrderByCreatedAtDesc();
     
+    // Keyset pagination over book summaries, newest first: the first page, then every row after a
+    // (createdAt, id) cursor. The redundant createdAt bound turns the cursor into a range of
+    // idx_books_created_at_id; H2 cannot use the OR on its own and would walk the index from the top
+    @Query("SELECT " + SUMMARY + " FROM Book b ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookSummary> findSummaryFirstPage(Limit limit);
+    
+    @Query("SELECT " + SUMMARY + " FROM Book b " +
+           "WHERE b.createdAt <= :createdAt AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookSummary> findSummaryPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+    
+    // Summaries of the given books, in no particular order
+    @Query("SELECT " + SUMMARY + " FROM Book b WHERE b.id IN :ids")
+    List<BookSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT new com.bookreview.model.BookDetail(b.id, b.title, b.author, b.genre, b.isbn, b.description, " +
+           "b.publicationYear, b.createdAt, b.updatedAt, b.reviewCount, b.ratingSum) FROM Book b WHERE b.id = :id")
+    Optional<BookDetail> findDetailById(@Param("id") Long id);
+    
+    @Query("SELECT new com.bookreview.model.BookStats(b.id, b.reviewCount, b.ratingSum, b.rating1Count, " +
+           "b.rating2Count, b.rating3Count, b.rating4Count, b.rating5Count) FROM Book b WHERE b.id = :id")
+    Optional<BookStats> findStatsById(@Param("id") Long id);
+    
+    // Ids of books whose title or author contains the keyword, for searches without the index
+    @ExpectedFullScan("LIKE with a leading wildcard; searches go through BookSearchIndex")
+    @Query("SELECT b.id FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "OR LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%')) ORDER BY b.title, b.id")
+    List<Long> findIdsByTitleOrAuthorContaining(@Param("keyword") String keyword, Limit limit);
+    
+    // Searchable fields of books after the given id, in id order; rows are [id, title, author, genre]
+    @Query("SELECT b.id, b.title, b.author, b.genre FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<Object[]> findSearchFieldsAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    // Rating aggregates of books with reviews, after the given id and in id order, for the rating
+    // leaderboard; rows are [id, version, genre, rating1Count, ..., rating5Count]
+    @Query("SELECT b.id, b.version, b.genre, " + RATING_COUNTS + " FROM Book b " +
+           "WHERE b.id > :afterId AND b.reviewCount > 0 ORDER BY b.id")
+    List<Object[]> findRatingAggregatesAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    // The same rows for the given books, whether or not they have reviews
+    @Query("SELECT b.id, b.version, b.genre, " + RATING_COUNTS + " FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findRatingAggregatesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Every book, or those created at or after since, oldest first; streamed from a JDBC cursor
+    // with read-only entities, for exports
+    @ExpectedFullScan("exports every book")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.createdAt, b.id")
+    Stream<Book> streamAll();
+    
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Book b WHERE b.createdAt >= :since ORDER BY b.createdAt, b.id")
+    Stream<Book> streamCreatedSince(@Param("since") LocalDateTime since);
+    
+    // Ids among the given ones that belong to an existing book
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
     // Find books by genre ordered by title
+    @ExpectedFullScan("LIKE with a leading wildcard; searches go through BookSearchIndex")
     List<Book> findByGenreContainingIgnoreCaseOrderByTitle(String genre);
+    
+    // Keyset pagination within a genre, by title: the first page, then every row after a (title, id)
+    // cursor; both are range scans of idx_books_genre_title
+    @Query("SELECT " + SUMMARY + " FROM Book b WHERE b.genreRef.id = :genreId ORDER BY b.title, b.id")
+    List<BookSummary> findGenreSummaryFirstPage(@Param("genreId") Long genreId, Limit limit);
+    
+    @Query("SELECT " + SUMMARY + " FROM Book b WHERE b.genreRef.id = :genreId " +
+           "AND b.title >= :title AND (b.title > :title OR (b.title = :title AND b.id > :id)) ORDER BY b.title, b.id")
+    List<BookSummary> findGenreSummaryPageAfter(@Param("genreId") Long genreId, @Param("title") String title,
+                                                @Param("id") Long id, Limit limit);
+    
+    // Genre id currently stored for a book; empty when the book or its genre is missing
+    @Query("SELECT b.genreRef.id FROM Book b WHERE b.id = :id")
+    Optional<Long> findGenreIdById(@Param("id") Long id);
+    
+    // Distinct genre texts of books that have no normalized genre yet
+    @Query("SELECT DISTINCT b.genre FROM Book b WHERE b.genreRef IS NULL AND b.genre IS NOT NULL")
+    List<String> findUnassignedGenreNames();
+    
+    @Modifying
+    @Query("UPDATE Book b SET b.genreRef = :genre WHERE b.genreRef IS NULL AND b.genre = :name")
+    int assignGenre(@Param("genre") Genre genre, @Param("name") String name);
+    
+    // Version and last-modified time of a book, for conditional GETs
+    @Query("SELECT new com.bookreview.model.EntityVersion(b.version, b.updatedAt, b.createdAt) FROM Book b WHERE b.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") Long id);
+    
+    // The statements below write books without going through the entity, so they bump the version
+    // and updatedAt themselves: the book page shows the aggregates and the latest reviews
+    
+    // Mark a book as changed, e.g. after the text of one of its reviews was edited
+    @Modifying
+    @Query("UPDATE Book b SET b.version = b.version + 1, b.updatedAt = LOCAL DATETIME WHERE b.id = :bookId")
+    int incrementVersion(@Param("bookId") Long bookId);
+    
+    // Apply a delta to the stored rating aggregates of a book in a single atomic UPDATE
+    @Modifying
+    @Query("UPDATE Book b SET b.reviewCount = b.reviewCount + :countDelta, b.ratingSum = b.ratingSum + :sumDelta, " +
+           "b.rating1Count = b.rating1Count + :delta1, b.rating2Count = b.rating2Count + :delta2, " +
+           "b.rating3Count = b.rating3Count + :delta3, b.rating4Count = b.rating4Count + :delta4, " +
+           "b.rating5Count = b.rating5Count + :delta5, b.version = b.version + 1, b.updatedAt = LOCAL DATETIME WHERE b.id = :bookId")
+    int adjustRatingAggregates(@Param("bookId") Long bookId,
+                               @Param("countDelta") int countDelta,
+                               @Param("sumDelta") long sumDelta,
+                               @Param("delta1") int delta1,
+                               @Param("delta2") int delta2,
+                               @Param("delta3") int delta3,
+                               @Param("delta4") int delta4,
+                               @Param("delta5") int delta5);
+    
+    // Apply a histogram delta (index 0 holds the 1-star change, index 4 the 5-star change)
+    default int adjustRatingAggregates(Long bookId, int[] histogramDelta) {
+        int countDelta = 0;
+        long sumDelta = 0;
+        for (int i = 0; i < histogramDelta.length; i++) {
+            countDelta += histogramDelta[i];
+            sumDelta += (long) histogramDelta[i] * (i + 1);
+        }
+        return adjustRatingAggregates(bookId, countDelta, sumDelta, histogramDelta[0], histogramDelta[1],
+                histogramDelta[2], histogramDelta[3], histogramDelta[4]);
+    }
+    
+    // Overwrite the stored rating aggregates of a book (used by the repair job); books whose
+    // aggregates are already right are left alone, so their version does not change
+    @Modifying
+    @Query("UPDATE Book b SET b.reviewCount = :count, b.ratingSum = :sum, " +
+           "b.rating1Count = :count1, b.rating2Count = :count2, b.rating3Count = :count3, " +
+           "b.rating4Count = :count4, b.rating5Count = :count5, b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+           "WHERE b.id = :bookId AND (b.reviewCount <> :count OR b.ratingSum <> :sum " +
+           "OR b.rating1Count <> :count1 OR b.rating2Count <> :count2 OR b.rating3Count <> :count3 " +
+           "OR b.rating4Count <> :count4 OR b.rating5Count <> :count5)")
+    int setRatingAggregates(@Param("bookId") Long bookId,
+                            @Param("count") int count,
+                            @Param("sum") long sum,
+                            @Param("count1") int count1,
+                            @Param("count2") int count2,
+                            @Param("count3") int count3,
+                            @Param("count4") int count4,
+                            @Param("count5") int count5);
+    
+    // Ids of the books whose stored rating aggregates differ from their reviews, in one pass over
+    // each table. Review writes in flight show up here too; the repair job rechecks every book
+    // under its row lock.
+    @ExpectedFullScan("the repair job compares every book with its reviews")
+    @Query(value = "SELECT b.id FROM books b LEFT JOIN (" +
+                   "SELECT book_id, COUNT(*) AS review_count, SUM(rating) AS rating_sum, " +
+                   "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END) AS rating_1_count, " +
+                   "SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END) AS rating_2_count, " +
+                   "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END) AS rating_3_count, " +
+                   "SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END) AS rating_4_count, " +
+                   "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END) AS rating_5_count " +
+                   "FROM reviews GROUP BY book_id) r ON r.book_id = b.id " +
+                   "WHERE b.review_count <> COALESCE(r.review_count, 0) OR b.rating_sum <> COALESCE(r.rating_sum, 0) " +
+                   "OR b.rating_1_count <> COALESCE(r.rating_1_count, 0) OR b.rating_2_count <> COALESCE(r.rating_2_count, 0) " +
+                   "OR b.rating_3_count <> COALESCE(r.rating_3_count, 0) OR b.rating_4_count <> COALESCE(r.rating_4_count, 0) " +
+                   "OR b.rating_5_count <> COALESCE(r.rating_5_count, 0) ORDER BY b.id",
+           nativeQuery = true)
+    List<Long> findIdsWithDriftedRatingAggregates();
+    
+    // Lock the book's row until the end of the transaction. Review writes take the same lock when
+    // they adjust the aggregates, so the reviews counted afterwards match them exactly.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id FROM Book b WHERE b.id = :id")
+    Optional<Long> lockById(@Param("id") Long id);
 }
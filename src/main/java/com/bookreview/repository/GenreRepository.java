@@ -0,0 +1,33 @@
+package com.bookreview.repository;
+
+import com.bookreview.model.Genre;
+import com.bookreview.schema.ExpectedFullScan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface GenreRepository extends JpaRepository<Genre, Long> {
+    
+    Optional<Genre> findByNormalizedName(String normalizedName);
+    
+    // Genres that have books, largest first; reads only the genres table
+    @ExpectedFullScan("lists every genre with books, one row per genre")
+    List<Genre> findByBookCountGreaterThanOrderByBookCountDescNameAsc(int bookCount);
+    
+    // Apply a delta to the stored book count of a genre in a single atomic UPDATE
+    @Modifying
+    @Query("UPDATE Genre g SET g.bookCount = g.bookCount + :delta WHERE g.id = :genreId")
+    int adjustBookCount(@Param("genreId") Long genreId, @Param("delta") int delta);
+    
+    // Overwrite every stored book count with a count of the books table (used after bulk writes)
+    @ExpectedFullScan("recounts every genre")
+    @Modifying
+    @Query("UPDATE Genre g SET g.bookCount = (SELECT COUNT(b) FROM Book b WHERE b.genreRef = g)")
+    int recomputeBookCounts();
+}
@@ -1,20 +1,44 @@
 package com.bookreview.repository;
 
+import com.bookreview.model.EntityVersion;
 import com.bookreview.model.Review;
+import com.bookreview.model.ReviewDetail;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.schema.ExpectedFullScan;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     
-    // Find reviews by book ID
-    List<Review> findByBookIdOrderByCreatedAtDesc(Long bookId);
+    // Rows per round trip when streaming exports
+    int EXPORT_FETCH_SIZE = 500;
+    
+    // Characters of the comment that listings read; templates abbreviate to less than this, so a
+    // longer comment still ends in an ellipsis
+    int COMMENT_SNIPPET_LENGTH = 300;
+    
+    // Select clause of the summary queries, for lists that show reviews without their full comment
+    String SUMMARY = "new com.bookreview.model.ReviewSummary(r.id, b.id, b.title, b.author, r.reviewerName, r.rating, " +
+            "SUBSTRING(r.comment, 1, " + COMMENT_SNIPPET_LENGTH + "), r.createdAt)";
+    
+    // Find reviews by book ID; the derived query would join books just to compare their id
+    @Query("SELECT r FROM Review r WHERE r.book.id = :bookId ORDER BY r.createdAt DESC")
+    List<Review> findByBookIdOrderByCreatedAtDesc(@Param("bookId") Long bookId);
     
     // Find reviews by reviewer name
+    @ExpectedFullScan("LIKE with a leading wildcard")
     List<Review> findByReviewerNameContainingIgnoreCase(String reviewerName);
     
     // Find reviews by rating
@@ -24,13 +48,82 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByRatingGreaterThanEqual(Integer rating);
     
     // Find latest reviews (limit not directly supported in method names, use custom query)
+    @ExpectedFullScan("returns every review")
     @Query("SELECT r FROM Review r ORDER BY r.createdAt DESC")
     List<Review> findLatestReviews();
     
+    // Find a review together with its book
+    @Query("SELECT r FROM Review r JOIN FETCH r.book WHERE r.id = :id")
+    Optional<Review> findWithBookById(@Param("id") Long id);
+    
+    // Keyset pagination over the reviews of one book, newest first
+    @Query("SELECT r FROM Review r WHERE r.book.id = :bookId ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findByBookIdFirstPage(@Param("bookId") Long bookId, Limit limit);
+    
+    @Query("SELECT r FROM Review r WHERE r.book.id = :bookId " +
+           "AND r.createdAt <= :createdAt AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findByBookIdPageAfter(@Param("bookId") Long bookId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Limit limit);
+    
+    // Keyset pagination over review summaries, newest first: over all reviews, and over the reviews
+    // of one book; each row carries its book's title and author from a join, not a second query.
+    // Every review has a book, so the LEFT JOIN of the latest pages returns the same rows; it keeps
+    // H2 from reordering the join, which would scan books first and sort every review of every book.
+    // The redundant createdAt bounds let the cursors start a range instead of skipping rows.
+    @Query("SELECT " + SUMMARY + " FROM Review r LEFT JOIN r.book b ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReviewSummary> findSummaryLatestPage(Limit limit);
+    
+    @Query("SELECT " + SUMMARY + " FROM Review r LEFT JOIN r.book b " +
+           "WHERE r.createdAt <= :createdAt AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReviewSummary> findSummaryLatestPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                                   Limit limit);
+    
+    @Query("SELECT " + SUMMARY + " FROM Review r JOIN r.book b WHERE b.id = :bookId ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReviewSummary> findSummaryByBookIdFirstPage(@Param("bookId") Long bookId, Limit limit);
+    
+    @Query("SELECT " + SUMMARY + " FROM Review r JOIN r.book b WHERE b.id = :bookId " +
+           "AND r.createdAt <= :createdAt AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReviewSummary> findSummaryByBookIdPageAfter(@Param("bookId") Long bookId,
+                                                     @Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("id") Long id,
+                                                     Limit limit);
+    
+    @Query("SELECT new com.bookreview.model.ReviewDetail(r.id, b.id, b.title, r.reviewerName, r.rating, r.comment, " +
+           "r.createdAt, r.updatedAt) FROM Review r JOIN r.book b WHERE r.id = :id")
+    Optional<ReviewDetail> findDetailById(@Param("id") Long id);
+    
     // Count reviews for a specific book
-    Long countByBookId(Long bookId);
+    @Query("SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId")
+    Long countByBookId(@Param("bookId") Long bookId);
+    
+    // Version and last-modified time of a review and its book, for conditional GETs
+    @Query("SELECT new com.bookreview.model.EntityVersion(r.version, r.updatedAt, r.createdAt, " +
+           "b.version, b.updatedAt, b.createdAt) FROM Review r JOIN r.book b WHERE r.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") Long id);
+    
+    // Every review, or those created at or after since, oldest first; streamed from a JDBC cursor
+    // with read-only entities, for exports
+    @ExpectedFullScan("exports every review")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Review r ORDER BY r.createdAt, r.id")
+    Stream<Review> streamAll();
+    
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Review r WHERE r.createdAt >= :since ORDER BY r.createdAt, r.id")
+    Stream<Review> streamCreatedSince(@Param("since") LocalDateTime since);
     
-    // Get average rating for a book
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.book.id = :bookId")
-    Double getAverageRatingByBookId(@Param("bookId") Long bookId);
+    // Count one book's reviews per rating; rows are [rating, count]
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.book.id = :bookId GROUP BY r.rating")
+    List<Object[]> countByRatingForBook(@Param("bookId") Long bookId);
 }
@@ -0,0 +1,20 @@
+package com.bookreview.schema;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository query that reads a whole table by design, e.g. a LIKE search with a
+ * leading wildcard or a job that visits every row. QueryPlanVerifier does not report its
+ * table scans; the value says why no index can help.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExpectedFullScan {
+    
+    String value();
+}
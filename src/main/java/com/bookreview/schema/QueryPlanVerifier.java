@@ -0,0 +1,211 @@
+package com.bookreview.schema;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs H2's EXPLAIN on the SQL of every query method declared by the Spring Data repositories
+ * and reports the queries that read a whole table of more than a threshold of rows.
+ *
+ * Each method is called once with sample arguments inside a rolled-back transaction, and
+ * StatementCapture takes its SQL before it runs, so verifying neither reads nor changes data.
+ * A table access counts as a full scan when H2 reads the table, or walks one of its indexes,
+ * without an index condition; an index walked in ORDER BY order that stops at FETCH FIRST is
+ * fine as long as the query has no WHERE clause to skip rows with. Queries marked
+ * @ExpectedFullScan are not reported. QueryPlanTest fails the build on any finding; with
+ * bookreview.query-plans.verify-on-startup the findings are logged against the real data.
+ */
+@Component
+public class QueryPlanVerifier {
+    
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanVerifier.class);
+    
+    // A table in an H2 plan and the comment naming how it is read on the next line, e.g.
+    // "PUBLIC.BOOKS.tableScan" or "PUBLIC.IDX_BOOKS_CREATED_AT_ID: CREATED_AT <= ?1"
+    private static final Pattern TABLE_ACCESS = Pattern.compile("\"(\\w+)\"\\.\"(\\w+)\"[^\\n]*\\n\\s*/\\* ([^*]+?) \\*/");
+    
+    // A repository query whose plan reads all rows of a table
+    public record FullScan(String query, String table, long rows, String plan) {
+    }
+    
+    // Number of repository queries explained, and those found reading a whole table
+    public record Result(int queries, List<FullScan> fullScans) {
+    }
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private StatementCapture statementCapture;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${bookreview.query-plans.verify-on-startup:false}")
+    private boolean verifyOnStartup;
+    
+    @Value("${bookreview.query-plans.scan-row-threshold:1000}")
+    private long scanRowThreshold;
+    
+    public QueryPlanVerifier(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyAtStartup() {
+        if (!verifyOnStartup) {
+            return;
+        }
+        Result result = verify(scanRowThreshold);
+        for (FullScan scan : result.fullScans()) {
+            logger.warn("{} reads all {} rows of {}:\n{}", scan.query(), scan.rows(), scan.table(), scan.plan());
+        }
+        logger.info("Explained {} repository queries, {} full scans of tables over {} rows",
+                result.queries(), result.fullScans().size(), scanRowThreshold);
+    }
+    
+    // Full scans of tables holding more than rowThreshold rows, over all repository queries
+    public Result verify(long rowThreshold) {
+        Repositories repositories = new Repositories(applicationContext);
+        Set<Class<?>> repositoryInterfaces = new LinkedHashSet<>();
+        for (Class<?> domainType : repositories) {
+            repositories.getRepositoryInformationFor(domainType)
+                    .ifPresent(information -> repositoryInterfaces.add(information.getRepositoryInterface()));
+        }
+        
+        int queries = 0;
+        List<FullScan> fullScans = new ArrayList<>();
+        for (Class<?> repositoryInterface : repositoryInterfaces) {
+            Object repository = applicationContext.getBean(repositoryInterface);
+            for (Method method : queryMethods(repositoryInterface)) {
+                String query = repositoryInterface.getSimpleName() + "." + method.getName();
+                String sql = captureSql(repository, method);
+                if (sql == null) {
+                    logger.warn("{} issued no statement to explain", query);
+                    continue;
+                }
+                queries++;
+                if (method.isAnnotationPresent(ExpectedFullScan.class)) {
+                    continue;
+                }
+                String plan = explain(sql);
+                logger.debug("{}:\n{}", query, plan);
+                for (String table : scannedTables(plan)) {
+                    long rows = rowCount(table);
+                    if (rows > rowThreshold) {
+                        fullScans.add(new FullScan(query, table, rows, plan));
+                    }
+                }
+            }
+        }
+        return new Result(queries, fullScans);
+    }
+    
+    // Abstract methods declared by the repository itself, in a stable order; the inherited CRUD
+    // methods only look rows up by primary key
+    private static List<Method> queryMethods(Class<?> repositoryInterface) {
+        return Arrays.stream(repositoryInterface.getDeclaredMethods())
+                .filter(method -> Modifier.isAbstract(method.getModifiers()))
+                .sorted(Comparator.comparing(Method::getName).thenComparing(Method::getParameterCount))
+                .toList();
+    }
+    
+    private String captureSql(Object repository, Method method) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Object[] arguments = Arrays.stream(method.getParameterTypes()).map(this::sampleArgument).toArray();
+            try {
+                return statementCapture.capture(() -> method.invoke(repository, arguments));
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not capture the SQL of " + method, e);
+            }
+        });
+    }
+    
+    // Any value of the right type will do, as the statement never runs
+    private Object sampleArgument(Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 1;
+        }
+        if (type == String.class) {
+            return "a";
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == Limit.class) {
+            return Limit.of(1);
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return List.of(1L);
+        }
+        if (type.isAnnotationPresent(Entity.class)) {
+            return entityManager.getReference(type, 1L);
+        }
+        throw new IllegalStateException("No sample argument for a " + type.getName() + " parameter");
+    }
+    
+    private String explain(String sql) {
+        return jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                (ResultSetExtractor<String>) resultSet -> resultSet.next() ? resultSet.getString(1) : "");
+    }
+    
+    // Tables the plan reads without an index condition, as SCHEMA.TABLE
+    static Set<String> scannedTables(String plan) {
+        boolean boundedIndexWalk = plan.contains("/* index sorted */") && plan.contains("FETCH FIRST")
+                && !plan.contains("WHERE");
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher access = TABLE_ACCESS.matcher(plan);
+        while (access.find()) {
+            String index = access.group(3);
+            if (!index.contains(":") && !boundedIndexWalk) {
+                tables.add(access.group(1) + "." + access.group(2));
+            }
+        }
+        return tables;
+    }
+    
+    private long rowCount(String table) {
+        String[] name = table.split("\\.");
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?",
+                Long.class, name[0], name[1]);
+        return rows.isEmpty() || rows.get(0) == null ? 0 : rows.get(0);
+    }
+}
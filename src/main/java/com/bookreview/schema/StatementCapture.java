@@ -0,0 +1,59 @@
+package com.bookreview.schema;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate StatementInspector that learns the SQL of a repository query without running it:
+ * inside capture() the first statement Hibernate prepares on the thread is recorded and
+ * aborted before it reaches the database. Every other statement passes through unchanged.
+ * Registered with Hibernate by MetricsConfig.
+ */
+@Component
+public class StatementCapture implements StatementInspector {
+    
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+    
+    // Thrown from inspect() to stop the captured statement; carries no stack trace
+    private static final class CapturedStatement extends RuntimeException {
+        
+        private final String sql;
+        
+        CapturedStatement(String sql) {
+            super(null, null, false, false);
+            this.sql = sql;
+        }
+    }
+    
+    private final ThreadLocal<Boolean> capturing = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        if (capturing.get() != null) {
+            throw new CapturedStatement(sql);
+        }
+        return sql;
+    }
+    
+    // SQL of the first statement the action prepares, or null when it prepares none; other
+    // exceptions of the action are rethrown
+    public String capture(Action action) throws Exception {
+        capturing.set(Boolean.TRUE);
+        try {
+            action.run();
+            return null;
+        } catch (Exception e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof CapturedStatement captured) {
+                    return captured.sql;
+                }
+            }
+            throw e;
+        } finally {
+            capturing.remove();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.bookreview.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-folded trigram inverted index over book title, author and genre.
+ *
+ * A query is split on whitespace into terms and a book matches when every term is a
+ * substring of its title, author or genre. Trigram postings narrow the candidates and
+ * each candidate is then verified against the stored fields, so the result is exactly
+ * the substring match the LIKE query computes, extended to genre and to terms that
+ * appear in different fields. Terms shorter than a trigram cannot use the postings and
+ * are checked against every indexed book.
+ */
+public class BookSearchIndex {
+    
+    private static final int GRAM = 3;
+    
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int GENRE_WEIGHT = 1;
+    private static final int WORD_START_BONUS = 1;
+    private static final int PHRASE_BONUS = 10;
+    
+    private final Map<Long, Document> documents = new HashMap<>();
+    
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private record Document(long id, String title, String author, String genre) {
+    }
+    
+    private record Hit(long id, int score) {
+    }
+    
+    public void index(long id, String title, String author, String genre) {
+        Document document = new Document(id, fold(title), fold(author), fold(genre));
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(id, document);
+            if (previous != null) {
+                removePostings(previous);
+            }
+            for (String gram : grams(document)) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                removePostings(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Ids of the books matching every term of the query, best match first
+    public List<Long> search(String query, int limit) {
+        String phrase = fold(query).trim();
+        if (phrase.isEmpty()) {
+            return List.of();
+        }
+        List<String> terms = List.of(phrase.split("\\s+"));
+        
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = new ArrayList<>();
+            for (Long id : candidates(terms)) {
+                Document document = documents.get(id);
+                int score = score(document, terms, phrase);
+                if (score > 0) {
+                    hits.add(new Hit(id, score));
+                }
+            }
+            return hits.stream()
+                    .sorted(Comparator.comparingInt(Hit::score).reversed()
+                            .thenComparing(Comparator.comparingLong(Hit::id).reversed()))
+                    .limit(limit)
+                    .map(Hit::id)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Intersect the postings of every trigram of every term long enough to have one
+    private Set<Long> candidates(List<String> terms) {
+        Set<Long> result = null;
+        for (String term : terms) {
+            for (int i = 0; i + GRAM <= term.length(); i++) {
+                Set<Long> posting = postings.get(term.substring(i, i + GRAM));
+                if (posting == null) {
+                    return Set.of();
+                }
+                if (result == null) {
+                    result = new HashSet<>(posting);
+                } else {
+                    result.retainAll(posting);
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+        }
+        return result != null ? result : documents.keySet();
+    }
+    
+    // Zero when some term matches no field
+    private static int score(Document document, List<String> terms, String phrase) {
+        int score = 0;
+        for (String term : terms) {
+            int termScore = Math.max(fieldScore(document.title(), term, TITLE_WEIGHT),
+                    Math.max(fieldScore(document.author(), term, AUTHOR_WEIGHT),
+                            fieldScore(document.genre(), term, GENRE_WEIGHT)));
+            if (termScore == 0) {
+                return 0;
+            }
+            score += termScore;
+        }
+        // Books the whole query matches as one substring (the LIKE semantics) rank first
+        if (terms.size() > 1 && (document.title().contains(phrase) || document.author().contains(phrase))) {
+            score += PHRASE_BONUS;
+        }
+        return score;
+    }
+    
+    private static int fieldScore(String field, String term, int weight) {
+        int index = field.indexOf(term);
+        if (index < 0) {
+            return 0;
+        }
+        boolean wordStart = index == 0 || !Character.isLetterOrDigit(field.charAt(index - 1));
+        return weight + (wordStart ? WORD_START_BONUS : 0);
+    }
+    
+    private void removePostings(Document document) {
+        for (String gram : grams(document)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(document.id());
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+    
+    // Grams are taken per field, so none of them spans two fields
+    private static Set<String> grams(Document document) {
+        Set<String> grams = new HashSet<>();
+        for (String field : new String[] { document.title(), document.author(), document.genre() }) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(field.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+    
+    private static String fold(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
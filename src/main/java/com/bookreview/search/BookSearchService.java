@@ -0,0 +1,137 @@
+package com.bookreview.search;
+
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.event.ChangeType;
+import com.bookreview.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Book search backed by an in-process BookSearchIndex.
+ *
+ * The index is loaded in the background once the application is ready and then kept up
+ * to date from BookChangedEvents. Until it is loaded, or when bookreview.search.mode=like,
+ * searches run the LIKE query in BookRepository instead.
+ */
+@Service
+public class BookSearchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchService.class);
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Value("${bookreview.search.mode:index}")
+    private String mode;
+    
+    @Value("${bookreview.search.max-results:100}")
+    private int maxResults;
+    
+    private final BookSearchIndex index = new BookSearchIndex();
+    
+    private volatile boolean ready;
+    
+    // Books changed while the index was loading; re-indexed once the load finishes
+    private Set<Long> changedDuringLoad;
+    
+    // Serializes rebuilds; a reload requested while one runs starts after it
+    private final Object rebuildLock = new Object();
+    
+    // Ids of the matching books, best match first and at most bookreview.search.max-results of them
+    public List<Long> searchIds(String keyword) {
+        if (!ready || !"index".equalsIgnoreCase(mode)) {
+            return bookRepository.findIdsByTitleOrAuthorContaining(keyword, Limit.of(maxResults));
+        }
+        return index.search(keyword, maxResults);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!"index".equalsIgnoreCase(mode)) {
+            return;
+        }
+        Thread loader = new Thread(this::rebuild, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    // Imported books are not announced one by one, so the index is reloaded after an import
+    @EventListener
+    public void onBulkImportCompleted(BulkImportCompletedEvent event) {
+        if (BulkImportCompletedEvent.BOOKS.equals(event.entity())) {
+            loadInBackground();
+        }
+    }
+    
+    // Drop and reload the whole index from the books table, in id order
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            load();
+        }
+    }
+    
+    private void load() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            ready = false;
+            changedDuringLoad = new HashSet<>();
+        }
+        index.clear();
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = bookRepository.findSearchFieldsAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                index.index(afterId, (String) row[1], (String) row[2], (String) row[3]);
+            }
+        } while (rows.size() == LOAD_BATCH_SIZE);
+        
+        Set<Long> changed;
+        synchronized (this) {
+            changed = changedDuringLoad;
+            changedDuringLoad = null;
+        }
+        changed.forEach(this::reindex);
+        ready = true;
+        logger.info("Search index loaded {} books in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        synchronized (this) {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.add(event.bookId());
+            }
+        }
+        if (event.type() == ChangeType.DELETED) {
+            index.remove(event.bookId());
+        } else {
+            reindex(event.bookId());
+        }
+    }
+    
+    private void reindex(Long bookId) {
+        bookRepository.findById(bookId).ifPresentOrElse(
+                book -> index.index(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre()),
+                () -> index.remove(bookId));
+    }
+}
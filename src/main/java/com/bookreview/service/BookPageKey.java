@@ -0,0 +1,9 @@
+package com.bookreview.service;
+
+/**
+ * The first page of one book's reviews at a page size, as coalesced by SingleFlight. The book
+ * version the caller checked is part of the key, so a caller that saw a newer version never joins
+ * a load started before that version was committed; null when the caller checked none.
+ */
+public record BookPageKey(Long bookId, Long version, int size) {
+}
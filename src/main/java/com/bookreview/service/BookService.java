@@ -1,40 +1,173 @@
 package com.bookreview.service;
 
+import com.bookreview.cache.EntityCache;
+import com.bookreview.cache.SingleFlight;
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.ChangeType;
 import com.bookreview.model.Book;
+import com.bookreview.model.BookDetail;
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.EntityVersion;
+import com.bookreview.model.Genre;
 import com.bookreview.repository.BookRepository;
+import com.bookreview.search.BookSearchService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+// Reads run in read-only transactions, which go to the read replica when one is configured
+// (ReadReplicaConfig); the writes override this with read-write transactions
 @Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+@Transactional(readOnly = true)
 public class BookService {
     
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private BookSearchService bookSearchService;
+    
+    @Autowired
+    private EntityCache<Book> bookCache;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private SingleFlight<Long, Optional<EntityVersion>> bookVersionLoads;
+    
+    @Value("${bookreview.pagination.page-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${bookreview.pagination.max-page-size:100}")
+    private int maxPageSize;
+    
     public List<Book> getAllBooks() {
         return bookRepository.findAllByOrderByCreatedAtDesc();
     }
     
+    // One page of book summaries, newest first, starting after the given cursor token (null for the
+    // first page); listings show no more of the description than the summary carries
+    public KeysetPage<BookSummary> getBookSummariesPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.resolvePageSize(size, defaultPageSize, maxPageSize);
+        Limit limit = Limit.of(pageSize + 1);
+        List<BookSummary> rows = PageCursor.decode(cursor)
+                .map(after -> bookRepository.findSummaryPageAfter(after.createdAt(), after.id(), limit))
+                .orElseGet(() -> bookRepository.findSummaryFirstPage(limit));
+        return KeysetPage.of(rows, pageSize, book -> new PageCursor(book.createdAt(), book.id()));
+    }
+    
+    // Served from the book cache; the returned Book is detached, so its reviews cannot be navigated.
+    // A cache hit needs no transaction, so none is started; a miss still reads as read-only
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Book> getBookById(Long id) {
-        return bookRepository.findById(id);
+        return Optional.ofNullable(bookCache.get(id, key -> bookRepository.findById(key).orElse(null)));
     }
     
-    public Book saveBook(Book book) {
-        return bookRepository.save(book);
+    // The cached book, unless its version differs from the given one, just read from the database:
+    // then the cached copy missed a write (not evicted here yet, or made on another instance) and
+    // is dropped and read again
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<Book> getBookAtVersion(Long id, EntityVersion version) {
+        Optional<Book> book = getBookById(id);
+        if (book.isPresent() && !EntityVersion.of(book.get()).tag().equals(version.tag())) {
+            bookCache.invalidate(id);
+            book = getBookById(id);
+        }
+        return book;
     }
     
-    public void deleteBook(Long id) {
-        bookRepository.deleteById(id);
+    public Optional<BookDetail> getBookDetail(Long id) {
+        return bookRepository.findDetailById(id);
     }
     
-    public List<Book> searchBooks(String keyword) {
+    // Summaries of the books matching a search, best match first
+    public List<BookSummary> searchBookSummaries(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            return getAllBooks();
+            return List.of();
+        }
+        List<Long> ids = bookSearchService.searchIds(keyword.trim());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, BookSummary> summaries = bookRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(BookSummary::id, Function.identity()));
+        return ids.stream().map(summaries::get).filter(Objects::nonNull).toList();
+    }
+    
+    // One page of a genre's book summaries in title order, starting after the given cursor token
+    public KeysetPage<BookSummary> getBookSummariesByGenrePage(Genre genre, String cursor, Integer size) {
+        int pageSize = KeysetPage.resolvePageSize(size, defaultPageSize, maxPageSize);
+        Limit limit = Limit.of(pageSize + 1);
+        List<BookSummary> rows = TitleCursor.decode(cursor)
+                .map(after -> bookRepository.findGenreSummaryPageAfter(genre.getId(), after.title(), after.id(), limit))
+                .orElseGet(() -> bookRepository.findGenreSummaryFirstPage(genre.getId(), limit));
+        return KeysetPage.of(rows, pageSize, book -> new TitleCursor(book.title(), book.id()));
+    }
+    
+    // Checked by every request for a book's page, so concurrent checks of one book share a single
+    // query (SingleFlight). The waiters must not hold a connection meanwhile, so no transaction
+    // is started here; the repository query reads in its own read-only transaction
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<EntityVersion> getBookVersion(Long id) {
+        return bookVersionLoads.load(id, () -> bookRepository.findVersionById(id));
+    }
+    
+    // Updates arrive as form-bound Books, so their editable fields are copied onto the stored
+    // book, which keeps its version, timestamps and aggregates. The genre is resolved from the
+    // genre text on every save and the genre book counts follow the change.
+    @Transactional
+    public Book saveBook(Book book) {
+        ChangeType type = book.getId() == null ? ChangeType.CREATED : ChangeType.UPDATED;
+        Book target = book;
+        Long previousGenreId = null;
+        if (type == ChangeType.UPDATED) {
+            target = bookRepository.findById(book.getId())
+                    .orElseThrow(() -> new EntityNotFoundException("Book " + book.getId() + " does not exist"));
+            previousGenreId = target.getGenreRef() == null ? null : target.getGenreRef().getId();
+            copyEditableFields(book, target);
         }
-        return bookRepository.findByTitleOrAuthorContaining(keyword.trim());
+        Genre genre = genreService.resolve(target.getGenre());
+        target.setGenreRef(genre);
+        Book saved = bookRepository.save(target);
+        genreService.moveBook(previousGenreId, genre == null ? null : genre.getId());
+        eventPublisher.publishEvent(new BookChangedEvent(saved.getId(), type));
+        return saved;
+    }
+    
+    private static void copyEditableFields(Book from, Book to) {
+        to.setTitle(from.getTitle());
+        to.setAuthor(from.getAuthor());
+        to.setGenre(from.getGenre());
+        to.setIsbn(from.getIsbn());
+        to.setDescription(from.getDescription());
+        to.setPublicationYear(from.getPublicationYear());
+    }
+    
+    @Transactional
+    public void deleteBook(Long id) {
+        Long genreId = bookRepository.findGenreIdById(id).orElse(null);
+        bookRepository.deleteById(id);
+        genreService.moveBook(genreId, null);
+        eventPublisher.publishEvent(new BookChangedEvent(id, ChangeType.DELETED));
     }
     
     public List<Book> getBooksByGenre(String genre) {
@@ -53,8 +186,9 @@ public class BookService {
         return bookRepository.findByPublicationYearBetween(startYear, endYear);
     }
     
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean existsById(Long id) {
-        return bookRepository.existsById(id);
+        return bookCache.contains(id) || bookRepository.existsById(id);
     }
     
     public long getTotalBookCount() {
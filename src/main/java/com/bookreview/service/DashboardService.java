@@ -0,0 +1,141 @@
+package com.bookreview.service;
+
+import com.bookreview.event.BookChangedEvent;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.event.RatingAggregatesRepairedEvent;
+import com.bookreview.event.ReviewChangedEvent;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.ReviewRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves the home page dashboard from an in-memory snapshot.
+ *
+ * The snapshot is rebuilt on the next read after any book or review write, and at the
+ * latest once it is older than bookreview.dashboard.max-staleness (which bounds how long
+ * writes made by other instances stay invisible). While one request rebuilds, concurrent
+ * requests keep serving the previous snapshot.
+ */
+@Service
+public class DashboardService {
+    
+    private static final int RECENT_LIMIT = 5;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ReviewRepository reviewRepository;
+    
+    private final TransactionTemplate readOnlyTransaction;
+    
+    private final Timer rebuildTimer;
+    
+    private final Duration maxStaleness;
+    
+    // Bumped on every write; a snapshot built at an older generation is stale
+    private final AtomicLong writeGeneration = new AtomicLong();
+    
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    
+    private volatile DashboardSnapshot snapshot;
+    
+    public DashboardService(PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${bookreview.dashboard.max-staleness:30s}") Duration maxStaleness) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxStaleness = maxStaleness;
+        this.rebuildTimer = Timer.builder("bookreview.dashboard.snapshot.rebuild")
+                .description("Time taken to rebuild the home page dashboard snapshot")
+                .register(meterRegistry);
+        TimeGauge.builder("bookreview.dashboard.snapshot.age", this, TimeUnit.MILLISECONDS,
+                        service -> service.snapshot == null ? 0 : service.snapshot.age().toMillis())
+                .description("Age of the dashboard snapshot currently being served")
+                .register(meterRegistry);
+    }
+    
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (current != null && isFresh(current)) {
+            return current;
+        }
+        if (current != null) {
+            // Someone else is already rebuilding; the previous snapshot is good enough meanwhile
+            if (!rebuildLock.tryLock()) {
+                return current;
+            }
+        } else {
+            rebuildLock.lock();
+        }
+        try {
+            current = snapshot;
+            if (current == null || !isFresh(current)) {
+                current = rebuild();
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+    
+    public void markStale() {
+        writeGeneration.incrementAndGet();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        markStale();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        markStale();
+    }
+    
+    @EventListener
+    public void onBulkImportCompleted(BulkImportCompletedEvent event) {
+        markStale();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingAggregatesRepaired(RatingAggregatesRepairedEvent event) {
+        if (event.booksUpdated() > 0) {
+            markStale();
+        }
+    }
+    
+    private boolean isFresh(DashboardSnapshot candidate) {
+        return candidate.generation() == writeGeneration.get()
+                && candidate.age().compareTo(maxStaleness) < 0;
+    }
+    
+    private DashboardSnapshot rebuild() {
+        // Read the generation first: a write that lands during the rebuild leaves the result stale
+        long generation = writeGeneration.get();
+        return rebuildTimer.record(() -> readOnlyTransaction.execute(status -> new DashboardSnapshot(
+                bookRepository.count(),
+                reviewRepository.count(),
+                bookRepository.findSummaryFirstPage(Limit.of(RECENT_LIMIT)),
+                reviewRepository.findSummaryLatestPage(Limit.of(RECENT_LIMIT)),
+                Instant.now(),
+                generation)));
+    }
+}
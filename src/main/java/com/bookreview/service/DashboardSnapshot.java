@@ -0,0 +1,30 @@
+package com.bookreview.service;
+
+import com.bookreview.model.BookSummary;
+import com.bookreview.model.ReviewSummary;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable view of the home page dashboard. The recent books and reviews are summaries
+ * that already carry everything the page shows, including the title of each review's book,
+ * so the snapshot can be rendered outside the session that built it.
+ */
+public record DashboardSnapshot(long totalBooks,
+                                long totalReviews,
+                                List<BookSummary> recentBooks,
+                                List<ReviewSummary> recentReviews,
+                                Instant builtAt,
+                                long generation) {
+    
+    public DashboardSnapshot {
+        recentBooks = List.copyOf(recentBooks);
+        recentReviews = List.copyOf(recentReviews);
+    }
+    
+    public Duration age() {
+        return Duration.between(builtAt, Instant.now());
+    }
+}
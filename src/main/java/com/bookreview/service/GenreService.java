@@ -0,0 +1,124 @@
+package com.bookreview.service;
+
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.event.BulkImportCompletedEvent;
+import com.bookreview.model.Genre;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.GenreRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Owns the genres table: resolves free-text genres to shared Genre rows and keeps the
+ * per-genre book counts that the genre facets are read from. Lookups are read-only
+ * transactions; the methods that write say so.
+ */
+@Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+@Transactional(readOnly = true)
+public class GenreService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GenreService.class);
+    
+    // Takes one sequence value as the id. Hibernate reads each value as the bound of a block of
+    // 50 ids (pooled optimizer), and the blocks of two values never overlap the other value
+    private static final String INSERT =
+            "INSERT INTO genres (id, name, normalized_name, book_count) VALUES (NEXT VALUE FOR genres_seq, ?, ?, 0)";
+    
+    @Autowired
+    private GenreRepository genreRepository;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // The genre a book with this genre text belongs to, created on first use; null for blank text.
+    // A new genre is inserted in the caller's transaction, on its connection. When another
+    // request inserts the same genre first, the insert waits on the unique normalized_name until
+    // that one commits, and then only the failed statement is undone: the row the other request
+    // committed is read instead. The insert goes through JDBC so the failure never reaches the
+    // persistence context or marks the transaction for rollback.
+    @Transactional
+    public Genre resolve(String name) {
+        String normalized = Genre.normalize(name);
+        if (normalized == null) {
+            return null;
+        }
+        Optional<Genre> existing = genreRepository.findByNormalizedName(normalized);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        Genre genre = new Genre(name);
+        try {
+            jdbcTemplate.update(INSERT, genre.getName(), genre.getNormalizedName());
+        } catch (DuplicateKeyException createdConcurrently) {
+            logger.debug("Genre '{}' was created concurrently", normalized);
+        }
+        return genreRepository.findByNormalizedName(normalized)
+                .orElseThrow(() -> new IllegalStateException("Genre '" + normalized + "' was not created"));
+    }
+    
+    public Optional<Genre> findByName(String name) {
+        String normalized = Genre.normalize(name);
+        return normalized == null ? Optional.empty() : genreRepository.findByNormalizedName(normalized);
+    }
+    
+    // Genres with at least one book and their book counts, largest first
+    public List<Genre> getGenreFacets() {
+        return genreRepository.findByBookCountGreaterThanOrderByBookCountDescNameAsc(0);
+    }
+    
+    // Moves one book between genres in the stored counts; either side may be null
+    @Transactional
+    public void moveBook(Long fromGenreId, Long toGenreId) {
+        if (Objects.equals(fromGenreId, toGenreId)) {
+            return;
+        }
+        if (fromGenreId != null) {
+            genreRepository.adjustBookCount(fromGenreId, -1);
+        }
+        if (toGenreId != null) {
+            genreRepository.adjustBookCount(toGenreId, 1);
+        }
+    }
+    
+    // Links books written without a genre (sample data, manual SQL, rows from before the genres
+    // table existed) to their genre, then recounts; returns how many books were linked
+    @Transactional
+    public int assignMissingGenres() {
+        int assigned = 0;
+        for (String name : bookRepository.findUnassignedGenreNames()) {
+            Genre genre = resolve(name);
+            if (genre != null) {
+                assigned += bookRepository.assignGenre(genre, name);
+            }
+        }
+        if (assigned > 0) {
+            genreRepository.recomputeBookCounts();
+            logger.info("Linked {} books to their genre", assigned);
+        }
+        return assigned;
+    }
+    
+    // Imported books are linked to their genre as they are written, but not counted
+    @EventListener
+    @Transactional
+    public void onBulkImportCompleted(BulkImportCompletedEvent event) {
+        if (BulkImportCompletedEvent.BOOKS.equals(event.entity())) {
+            genreRepository.recomputeBookCounts();
+        }
+    }
+}
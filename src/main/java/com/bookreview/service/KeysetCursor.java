@@ -0,0 +1,10 @@
+package com.bookreview.service;
+
+/**
+ * Position of the last row of a keyset page, encoded into the opaque token that the
+ * "next page" link carries.
+ */
+public interface KeysetCursor {
+    
+    String encode();
+}
@@ -0,0 +1,31 @@
+package com.bookreview.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. nextCursor is null on the last page.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+    
+    // Build a page from a query that fetched pageSize + 1 rows; the extra row only
+    // signals that another page exists and is not returned
+    public static <T> KeysetPage<T> of(List<T> rows, int pageSize, Function<T, ? extends KeysetCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(List.copyOf(rows), null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, pageSize));
+        return new KeysetPage<>(items, cursorOf.apply(items.get(pageSize - 1)).encode());
+    }
+    
+    public static int resolvePageSize(Integer requested, int defaultSize, int maxSize) {
+        if (requested == null || requested < 1) {
+            return defaultSize;
+        }
+        return Math.min(requested, maxSize);
+    }
+}
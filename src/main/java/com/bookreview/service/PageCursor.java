@@ -0,0 +1,42 @@
+package com.bookreview.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position of the last row of a keyset page, ordered by (created_at DESC, id DESC).
+ * Encoded as an opaque URL-safe token so that "next page" links stay stable while
+ * rows are inserted in front of them.
+ */
+public record PageCursor(LocalDateTime createdAt, Long id) implements KeysetCursor {
+    
+    private static final char SEPARATOR = '|';
+    
+    @Override
+    public String encode() {
+        String raw = createdAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Returns empty for a missing or malformed token, which callers treat as the first page
+    public static Optional<PageCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                return Optional.empty();
+            }
+            LocalDateTime createdAt = LocalDateTime.parse(raw.substring(0, separator));
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            return Optional.of(new PageCursor(createdAt, id));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.bookreview.service;
+
+import com.bookreview.config.JobLeases;
+import com.bookreview.event.RatingAggregatesRepairedEvent;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Recomputes the rating aggregates stored on books from the reviews table.
+ * The incremental updates done by ReviewService keep them exact; this job repairs
+ * drift caused by writes that bypass the service (sample data, manual SQL).
+ *
+ * Review writes keep running meanwhile, so each drifted book is recounted in its own short
+ * transaction under its row lock, which those writes take as well: a review either committed
+ * before the recount and is counted, or applies its delta after it.
+ */
+@Component
+public class RatingAggregateRepairJob {
+    
+    static final String JOB = "rating-aggregate-repair";
+    
+    private static final Logger logger = LoggerFactory.getLogger(RatingAggregateRepairJob.class);
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ReviewRepository reviewRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private JobLeases jobLeases;
+    
+    @Value("${bookreview.ratings.repair-lease:1h}")
+    private Duration lease;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public RatingAggregateRepairJob(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    // Every instance schedules the job, but only the one that takes the lease runs it
+    @Scheduled(cron = "${bookreview.ratings.repair-cron:0 30 3 * * *}")
+    public void scheduledRepair() {
+        if (jobLeases.tryAcquire(JOB, lease)) {
+            recomputeAll();
+        }
+    }
+    
+    // Returns the number of books whose aggregates were corrected
+    public int recomputeAll() {
+        long start = System.nanoTime();
+        List<Long> candidates = bookRepository.findIdsWithDriftedRatingAggregates();
+        int booksUpdated = 0;
+        int failed = 0;
+        for (Long bookId : candidates) {
+            try {
+                booksUpdated += transactionTemplate.execute(status -> recompute(bookId));
+            } catch (DataAccessException e) {
+                // e.g. a lock timeout behind a long review transaction; the next run retries
+                failed++;
+                logger.warn("Could not recompute the rating aggregates of book {}: {}", bookId, e.getMessage());
+            }
+        }
+        eventPublisher.publishEvent(new RatingAggregatesRepairedEvent(booksUpdated));
+        
+        logger.info("Recomputed rating aggregates of {} drifted books, corrected {}, failed {}, in {} ms",
+                candidates.size(), booksUpdated, failed, (System.nanoTime() - start) / 1_000_000);
+        return booksUpdated;
+    }
+    
+    // Returns 1 when the stored aggregates were wrong and have been fixed, 0 otherwise (also when
+    // the book has been deleted, or a write in flight during the scan has since committed)
+    private int recompute(Long bookId) {
+        if (bookRepository.lockById(bookId).isEmpty()) {
+            return 0;
+        }
+        int[] histogram = new int[5];
+        for (Object[] row : reviewRepository.countByRatingForBook(bookId)) {
+            int rating = (Integer) row[0];
+            if (rating >= 1 && rating <= 5) {
+                histogram[rating - 1] = ((Long) row[1]).intValue();
+            }
+        }
+        int count = 0;
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            sum += (long) histogram[i] * (i + 1);
+        }
+        return bookRepository.setRatingAggregates(bookId, count, sum,
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4]);
+    }
+}
@@ -1,33 +1,168 @@
 package com.bookreview.service;
 
+import com.bookreview.cache.EntityCache;
+import com.bookreview.cache.SingleFlight;
+import com.bookreview.config.MetricsConfig;
+import com.bookreview.event.ChangeType;
+import com.bookreview.event.ReviewChangedEvent;
+import com.bookreview.model.EntityVersion;
 import com.bookreview.model.Review;
+import com.bookreview.model.ReviewDetail;
+import com.bookreview.model.ReviewSummary;
+import com.bookreview.ratings.RatingStats;
+import com.bookreview.ratings.RatingStatsService;
+import com.bookreview.repository.BookRepository;
 import com.bookreview.repository.ReviewRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
+// Read-only by default, as in BookService; saveReview and deleteReview declare their own transactions
 @Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+@Transactional(readOnly = true)
 public class ReviewService {
     
     @Autowired
     private ReviewRepository reviewRepository;
     
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private EntityCache<Review> reviewCache;
+    
+    @Autowired
+    private RatingStatsService ratingStatsService;
+    
+    @Autowired
+    private SingleFlight<BookPageKey, KeysetPage<Review>> bookReviewPageLoads;
+    
+    @Autowired
+    private SingleFlight<BookPageKey, KeysetPage<ReviewSummary>> bookReviewSummaryPageLoads;
+    
+    @Value("${bookreview.pagination.page-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${bookreview.pagination.max-page-size:100}")
+    private int maxPageSize;
+    
     public List<Review> getAllReviews() {
         return reviewRepository.findLatestReviews();
     }
     
+    // One page of a book's reviews with their full comments, newest first, starting after the given
+    // cursor token; for the book page, which shows the reviews in full. Concurrent requests for
+    // the first page share one query (SingleFlight), and wait for it without a connection, so no
+    // transaction is started here; the repository queries read in their own read-only transactions.
+    // Only callers that checked the same book version share a load (null when none was checked)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public KeysetPage<Review> getReviewsPageByBookId(Long bookId, Long bookVersion, String cursor, Integer size) {
+        int pageSize = KeysetPage.resolvePageSize(size, defaultPageSize, maxPageSize);
+        Limit limit = Limit.of(pageSize + 1);
+        Optional<PageCursor> after = PageCursor.decode(cursor);
+        if (after.isPresent()) {
+            List<Review> rows = reviewRepository.findByBookIdPageAfter(bookId, after.get().createdAt(), after.get().id(), limit);
+            return KeysetPage.of(rows, pageSize, ReviewService::cursorOf);
+        }
+        return bookReviewPageLoads.load(new BookPageKey(bookId, bookVersion, pageSize),
+                () -> KeysetPage.of(reviewRepository.findByBookIdFirstPage(bookId, limit), pageSize, ReviewService::cursorOf));
+    }
+    
+    // One page of review summaries, newest first, over all reviews or those of one book, starting
+    // after the given cursor token (null for the first page)
+    public KeysetPage<ReviewSummary> getReviewSummariesPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.resolvePageSize(size, defaultPageSize, maxPageSize);
+        Limit limit = Limit.of(pageSize + 1);
+        List<ReviewSummary> rows = PageCursor.decode(cursor)
+                .map(after -> reviewRepository.findSummaryLatestPageAfter(after.createdAt(), after.id(), limit))
+                .orElseGet(() -> reviewRepository.findSummaryLatestPage(limit));
+        return KeysetPage.of(rows, pageSize, review -> new PageCursor(review.createdAt(), review.id()));
+    }
+    
+    // Coalesced like getReviewsPageByBookId
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public KeysetPage<ReviewSummary> getReviewSummariesPageByBookId(Long bookId, Long bookVersion, String cursor, Integer size) {
+        int pageSize = KeysetPage.resolvePageSize(size, defaultPageSize, maxPageSize);
+        Limit limit = Limit.of(pageSize + 1);
+        Optional<PageCursor> after = PageCursor.decode(cursor);
+        if (after.isPresent()) {
+            List<ReviewSummary> rows = reviewRepository.findSummaryByBookIdPageAfter(bookId, after.get().createdAt(), after.get().id(), limit);
+            return KeysetPage.of(rows, pageSize, ReviewService::cursorOf);
+        }
+        return bookReviewSummaryPageLoads.load(new BookPageKey(bookId, bookVersion, pageSize),
+                () -> KeysetPage.of(reviewRepository.findSummaryByBookIdFirstPage(bookId, limit), pageSize, ReviewService::cursorOf));
+    }
+    
+    public Optional<ReviewDetail> getReviewDetail(Long id) {
+        return reviewRepository.findDetailById(id);
+    }
+    
+    // Served from the review cache; the returned Review is detached and carries its book. A cache
+    // hit needs no transaction, so none is started; a miss still reads as read-only
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Review> getReviewById(Long id) {
-        return reviewRepository.findById(id);
+        return Optional.ofNullable(reviewCache.get(id, key -> reviewRepository.findWithBookById(key).orElse(null)));
+    }
+    
+    // The cached review, reread when its version or its book's differs from the given one, as in
+    // BookService.getBookAtVersion
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<Review> getReviewAtVersion(Long id, EntityVersion version) {
+        Optional<Review> review = getReviewById(id);
+        if (review.isPresent() && !EntityVersion.of(review.get()).tag().equals(version.tag())) {
+            reviewCache.invalidate(id);
+            review = getReviewById(id);
+        }
+        return review;
     }
     
+    public Optional<EntityVersion> getReviewVersion(Long id) {
+        return reviewRepository.findVersionById(id);
+    }
+    
+    // Edits arrive as form-bound Reviews, so their editable fields are copied onto the stored
+    // review, which keeps its book, version and timestamps
+    @Transactional
     public Review saveReview(Review review) {
-        return reviewRepository.save(review);
+        ChangeType type = review.getId() == null ? ChangeType.CREATED : ChangeType.UPDATED;
+        Review target = review;
+        Integer previousRating = null;
+        if (type == ChangeType.UPDATED) {
+            target = reviewRepository.findById(review.getId())
+                    .orElseThrow(() -> new EntityNotFoundException("Review " + review.getId() + " does not exist"));
+            // An edit replaces the previous rating, so remember it before it is overwritten
+            previousRating = target.getRating();
+            target.setReviewerName(review.getReviewerName());
+            target.setRating(review.getRating());
+            target.setComment(review.getComment());
+        }
+        Review saved = reviewRepository.save(target);
+        applyRatingChange(saved.getBook().getId(), previousRating, saved.getRating());
+        eventPublisher.publishEvent(new ReviewChangedEvent(saved.getId(), saved.getBook().getId(), type));
+        return saved;
     }
     
+    @Transactional
     public void deleteReview(Long id) {
-        reviewRepository.deleteById(id);
+        reviewRepository.findById(id).ifPresent(review -> {
+            Long bookId = review.getBook().getId();
+            reviewRepository.delete(review);
+            applyRatingChange(bookId, review.getRating(), null);
+            eventPublisher.publishEvent(new ReviewChangedEvent(id, bookId, ChangeType.DELETED));
+        });
     }
     
     public List<Review> getReviewsByBookId(Long bookId) {
@@ -50,16 +185,43 @@ public class ReviewService {
         return reviewRepository.countByBookId(bookId);
     }
     
+    // From the rating leaderboard for a book with reviews, otherwise from the book's stored aggregates
     public Double getAverageRatingByBookId(Long bookId) {
-        Double average = reviewRepository.getAverageRatingByBookId(bookId);
-        return average != null ? average : 0.0;
+        return ratingStatsService.getStats(bookId).map(RatingStats::averageRating).orElse(0.0);
     }
     
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean existsById(Long id) {
-        return reviewRepository.existsById(id);
+        return reviewCache.contains(id) || reviewRepository.existsById(id);
     }
     
     public long getTotalReviewCount() {
         return reviewRepository.count();
     }
+    
+    private static PageCursor cursorOf(Review review) {
+        return new PageCursor(review.getCreatedAt(), review.getId());
+    }
+    
+    private static PageCursor cursorOf(ReviewSummary review) {
+        return new PageCursor(review.createdAt(), review.id());
+    }
+    
+    // Move one review from removedRating to addedRating in the book's aggregates;
+    // either side may be null for an insert or a delete. Either way the book's version moves on,
+    // since its page lists the review.
+    private void applyRatingChange(Long bookId, Integer removedRating, Integer addedRating) {
+        if (removedRating != null && removedRating.equals(addedRating)) {
+            bookRepository.incrementVersion(bookId);
+            return;
+        }
+        int[] histogramDelta = new int[5];
+        if (removedRating != null) {
+            histogramDelta[removedRating - 1]--;
+        }
+        if (addedRating != null) {
+            histogramDelta[addedRating - 1]++;
+        }
+        bookRepository.adjustRatingAggregates(bookId, histogramDelta);
+    }
 }
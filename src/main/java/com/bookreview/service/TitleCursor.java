@@ -0,0 +1,38 @@
+package com.bookreview.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position of the last row of a keyset page ordered by (title, id), as used by the
+ * genre pages. Encoded the same way as PageCursor.
+ */
+public record TitleCursor(String title, Long id) implements KeysetCursor {
+    
+    private static final char SEPARATOR = '|';
+    
+    @Override
+    public String encode() {
+        String raw = title + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Returns empty for a missing or malformed token, which callers treat as the first page.
+    // Titles may contain the separator, so the id is taken from after the last one.
+    public static Optional<TitleCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new TitleCursor(raw.substring(0, separator), Long.valueOf(raw.substring(separator + 1))));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.bookreview.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only JSON Lines file of accepted review submissions. Appends are only written; force
+ * makes everything appended so far durable, so one force can cover several submissions before
+ * they are acknowledged. The file is emptied once everything in it has been written to the
+ * database.
+ */
+class ReviewJournal implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReviewJournal.class);
+    
+    private final Path path;
+    
+    private final ObjectMapper objectMapper;
+    
+    private FileChannel channel;
+    
+    // True once something was appended after the last truncation
+    private boolean dirty;
+    
+    ReviewJournal(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+    
+    Path path() {
+        return path;
+    }
+    
+    // Every entry in the file, oldest first. A crash can leave the last line half written; it
+    // was never acknowledged, so reading stops there.
+    List<ReviewSubmission> read() throws IOException {
+        List<ReviewSubmission> entries = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(objectMapper.readValue(line, ReviewSubmission.class));
+                } catch (IOException e) {
+                    logger.warn("Ignoring unreadable review journal entry at {}:{}", path, lineNumber);
+                    break;
+                }
+            }
+        }
+        return entries;
+    }
+    
+    void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        dirty = channel.size() > 0;
+    }
+    
+    void append(ReviewSubmission submission) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(submission);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirty = true;
+    }
+    
+    // Forces every entry appended so far to disk; appends may run meanwhile
+    void force() throws IOException {
+        channel.force(false);
+    }
+    
+    // Drops every entry; only call once all of them are in the database
+    void truncate() throws IOException {
+        if (dirty) {
+            channel.truncate(0);
+            channel.force(false);
+            dirty = false;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bookreview.writebehind;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+
+import java.time.LocalDateTime;
+
+/**
+ * A validated review waiting to be written, as queued in memory and recorded in the journal.
+ * The sequence orders submissions across restarts and is what the checkpoint refers to.
+ */
+public record ReviewSubmission(long sequence,
+                               Long bookId,
+                               String reviewerName,
+                               Integer rating,
+                               String comment,
+                               LocalDateTime createdAt) {
+    
+    static ReviewSubmission of(long sequence, Review review) {
+        return new ReviewSubmission(sequence, review.getBook().getId(), review.getReviewerName(),
+                review.getRating(), review.getComment(), review.getCreatedAt());
+    }
+    
+    Review toReview(Book book) {
+        Review review = new Review(reviewerName, rating, comment, book);
+        review.setCreatedAt(createdAt);
+        return review;
+    }
+}
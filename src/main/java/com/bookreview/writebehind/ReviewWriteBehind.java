@@ -0,0 +1,507 @@
+package com.bookreview.writebehind;
+
+import com.bookreview.config.NodeIdentity;
+import com.bookreview.event.ChangeType;
+import com.bookreview.event.ReviewChangedEvent;
+import com.bookreview.model.Book;
+import com.bookreview.model.JournalCheckpoint;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.JournalCheckpointRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind path for new reviews (bookreview.reviews.write-behind.enabled).
+ *
+ * A submitted review is appended to a local journal, forced to disk and put on a bounded
+ * queue. The force is a group commit: submissions appended while one force runs wait for the
+ * next, which covers all of them, so concurrent submissions share one fsync. A single writer thread drains the queue in batches, inserting each batch with one
+ * rating aggregate update per book and advancing a checkpoint row in the same transaction.
+ * On startup, journal entries past the checkpoint are written before requests are served,
+ * so acknowledged reviews survive a crash exactly once. When the queue is full, submit
+ * answers REJECTED or WRITE_NOW depending on bookreview.reviews.write-behind.when-full.
+ *
+ * Every instance has a journal file and a checkpoint row of its own, both named after its
+ * NodeIdentity, so instances sharing a database or a volume never replay each other's entries.
+ */
+@Component
+public class ReviewWriteBehind implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReviewWriteBehind.class);
+    
+    private static final String JOURNAL_PREFIX = "reviews:";
+    
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(30);
+    
+    public enum Admission {
+        // Journalled and queued; the review will be written shortly
+        QUEUED,
+        // Not queued; the caller writes the review itself
+        WRITE_NOW,
+        // The queue is full; the caller should ask the client to retry later
+        REJECTED
+    }
+    
+    public enum WhenFull {
+        REJECT, SYNC
+    }
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private JournalCheckpointRepository checkpointRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private NodeIdentity nodeIdentity;
+    
+    @Value("${bookreview.reviews.write-behind.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${bookreview.reviews.write-behind.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${bookreview.reviews.write-behind.when-full:reject}")
+    private WhenFull whenFull;
+    
+    @Value("${bookreview.reviews.write-behind.retry-after:5s}")
+    private Duration retryAfter;
+    
+    @Value("${bookreview.reviews.write-behind.journal-dir:data}")
+    private Path journalDir;
+    
+    @Value("${bookreview.reviews.write-behind.replay-timeout:30s}")
+    private Duration replayTimeout;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    private final BlockingQueue<ReviewSubmission> queue;
+    
+    private final Counter queuedCounter;
+    
+    private final Counter rejectedCounter;
+    
+    private final Counter writtenNowCounter;
+    
+    private final Counter droppedCounter;
+    
+    private final Timer batchTimer;
+    
+    private final Timer syncTimer;
+    
+    // A journal entry waiting for the force that makes it durable; synced is completed with
+    // whether that force succeeded
+    private record Unsynced(ReviewSubmission submission, CompletableFuture<Boolean> synced) {
+    }
+    
+    // Guards the journal, lastSequence, unsynced and unqueued, so entries are journalled in
+    // sequence order
+    private final Object appendLock = new Object();
+    
+    // Held while forcing the journal; the entries a force covers are queued in sequence order
+    private final Object syncLock = new Object();
+    
+    // Appended since the last force started
+    private final List<Unsynced> unsynced = new ArrayList<>();
+    
+    // Journalled entries not queued yet, including those of a force in progress; they count
+    // against the queue capacity already
+    private int unqueued;
+    
+    private ReviewJournal journal;
+    
+    private String journalName;
+    
+    private long lastSequence;
+    
+    // Highest sequence written to the database; only the writer thread advances it
+    private volatile long writtenSequence;
+    
+    // Whether submissions are accepted; the writer stops once this is false and the queue is empty
+    private volatile boolean accepting;
+    
+    private Thread writer;
+    
+    public ReviewWriteBehind(PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${bookreview.reviews.write-behind.queue-capacity:10000}") int queueCapacity) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("bookreview.reviews.write.behind.queue", queue, BlockingQueue::size)
+                .description("Reviews accepted but not yet written to the database")
+                .register(meterRegistry);
+        this.queuedCounter = submissions(meterRegistry, "queued");
+        this.rejectedCounter = submissions(meterRegistry, "rejected");
+        this.writtenNowCounter = submissions(meterRegistry, "written_now");
+        this.droppedCounter = Counter.builder("bookreview.reviews.write.behind.dropped")
+                .description("Queued reviews that could not be written, e.g. because their book was deleted")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("bookreview.reviews.write.behind.batch")
+                .description("Time taken to write one batch of queued reviews")
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("bookreview.reviews.write.behind.journal.sync")
+                .description("Time taken by one journal force, which covers every submission appended before it")
+                .register(meterRegistry);
+    }
+    
+    private static Counter submissions(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("bookreview.reviews.write.behind.submissions")
+                .description("Review submissions by what happened to them")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    // Offer a validated new review, with its book set, to the queue. Returns QUEUED once its
+    // journal entry is on disk
+    public Admission submit(Review review) {
+        if (!accepting) {
+            return Admission.WRITE_NOW;
+        }
+        Unsynced own;
+        synchronized (appendLock) {
+            if (queue.remainingCapacity() <= unqueued) {
+                if (whenFull == WhenFull.SYNC) {
+                    writtenNowCounter.increment();
+                    return Admission.WRITE_NOW;
+                }
+                rejectedCounter.increment();
+                return Admission.REJECTED;
+            }
+            ReviewSubmission submission = ReviewSubmission.of(lastSequence + 1, review);
+            try {
+                journal.append(submission);
+            } catch (IOException e) {
+                // Without the journal entry the review would not survive a crash
+                logger.error("Could not journal a review submission, writing it synchronously", e);
+                writtenNowCounter.increment();
+                return Admission.WRITE_NOW;
+            }
+            lastSequence = submission.sequence();
+            own = new Unsynced(submission, new CompletableFuture<>());
+            unsynced.add(own);
+            unqueued++;
+        }
+        synchronized (syncLock) {
+            if (!own.synced().isDone()) {
+                syncJournal();
+            }
+        }
+        if (!own.synced().join()) {
+            writtenNowCounter.increment();
+            return Admission.WRITE_NOW;
+        }
+        queuedCounter.increment();
+        return Admission.QUEUED;
+    }
+    
+    // Forces the journal once for every entry appended so far, then queues them. Called with
+    // syncLock held, so the forces, and the queueing, happen in sequence order.
+    private void syncJournal() {
+        List<Unsynced> covered;
+        synchronized (appendLock) {
+            covered = new ArrayList<>(unsynced);
+            unsynced.clear();
+        }
+        boolean synced = forceJournal(covered.size());
+        synchronized (appendLock) {
+            if (synced) {
+                covered.forEach(entry -> queue.add(entry.submission()));
+            }
+            unqueued -= covered.size();
+        }
+        covered.forEach(entry -> entry.synced().complete(synced));
+    }
+    
+    private boolean forceJournal(int entries) {
+        long start = System.nanoTime();
+        try {
+            journal.force();
+            return true;
+        } catch (IOException e) {
+            // As when the append fails; the entries are on file but not queued, so their
+            // callers write them synchronously
+            logger.error("Could not force the review journal, writing {} submissions synchronously", entries, e);
+            return false;
+        } finally {
+            syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+    
+    // Writes whatever the journal holds past the checkpoint, for up to replay-timeout, then starts
+    // the writer if enabled. Entries the database did not take in time are left to the writer, so
+    // a database that is slow or down at startup delays them instead of keeping the server down.
+    @Override
+    public void start() {
+        journalName = JOURNAL_PREFIX + nodeIdentity.getId();
+        Path journalPath = journalDir.resolve("review-journal-" + nodeIdentity.getId().replaceAll("[^A-Za-z0-9._-]", "_") + ".jsonl");
+        journal = new ReviewJournal(journalPath, objectMapper);
+        List<ReviewSubmission> leftover;
+        try {
+            List<ReviewSubmission> entries = journal.read();
+            leftover = entries.isEmpty() && !enabled ? List.of() : replay(entries);
+            if (!enabled && leftover.isEmpty()) {
+                Files.deleteIfExists(journalPath);
+                return;
+            }
+            journal.open();
+            if (leftover.isEmpty()) {
+                journal.truncate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the review journal " + journalPath, e);
+        }
+        accepting = enabled;
+        writer = new Thread(() -> drain(leftover), "review-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        if (enabled) {
+            logger.info("Review write-behind enabled: queue of {}, batches of {}, journal {}",
+                    queue.remainingCapacity(), batchSize, journalPath.toAbsolutePath());
+        }
+    }
+    
+    // Stops accepting submissions and waits for the writer to empty the queue
+    @Override
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        accepting = false;
+        try {
+            writer.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            logger.warn("Stopped with {} reviews still queued; they will be written from the journal on restart",
+                    queue.size());
+        }
+        writer = null;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Could not close the review journal", e);
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+    
+    // Start before and stop after the web server, so no request finds the writer gone
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+    
+    // Also continues the sequence from the checkpoint, so new entries sort after every older one.
+    // Returns the entries that are still to be written when replay-timeout runs out.
+    private List<ReviewSubmission> replay(List<ReviewSubmission> entries) {
+        long checkpoint = checkpointRepository.findById(journalName).map(JournalCheckpoint::getLastSequence).orElse(0L);
+        List<ReviewSubmission> pending = entries.stream()
+                .filter(entry -> entry.sequence() > checkpoint)
+                .toList();
+        lastSequence = entries.isEmpty() ? checkpoint : Math.max(checkpoint, entries.get(entries.size() - 1).sequence());
+        writtenSequence = pending.isEmpty() ? lastSequence : checkpoint;
+        if (pending.isEmpty()) {
+            return pending;
+        }
+        logger.info("Writing {} journalled reviews left from the previous run", pending.size());
+        Instant deadline = Instant.now().plus(replayTimeout);
+        if (writeAll(pending, deadline)) {
+            return List.of();
+        }
+        List<ReviewSubmission> leftover = pending.stream()
+                .filter(entry -> entry.sequence() > writtenSequence)
+                .toList();
+        logger.error("Could not write {} journalled reviews within {}s; the writer keeps retrying them in the background",
+                leftover.size(), replayTimeout.toSeconds());
+        return leftover;
+    }
+    
+    // True once every entry is written; false when the deadline passed first
+    private boolean writeAll(List<ReviewSubmission> entries, Instant deadline) {
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            if (!writeWithRetry(new ArrayList<>(entries.subList(from, Math.min(from + batchSize, entries.size()))), deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Writes the entries replay left over before anything submitted since
+    private void drain(List<ReviewSubmission> leftover) {
+        if (!writeAll(leftover, Instant.MAX)) {
+            return;
+        }
+        List<ReviewSubmission> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty() || hasUnqueued()) {
+            ReviewSubmission first;
+            try {
+                first = queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                truncateJournalIfWritten();
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            if (!writeWithRetry(batch, Instant.MAX)) {
+                return;
+            }
+            batch.clear();
+        }
+        truncateJournalIfWritten();
+    }
+    
+    // Entries still being forced are queued right after, so the writer waits for them on stop
+    private boolean hasUnqueued() {
+        synchronized (appendLock) {
+            return unqueued > 0;
+        }
+    }
+    
+    private void truncateJournalIfWritten() {
+        synchronized (appendLock) {
+            if (writtenSequence == lastSequence) {
+                try {
+                    journal.truncate();
+                } catch (IOException e) {
+                    logger.warn("Could not truncate the review journal", e);
+                }
+            }
+        }
+    }
+    
+    // A batch is retried until the database takes it or the deadline passes; false in the latter
+    // case, or when interrupted. Only when a row itself is at fault is the batch split, and rows
+    // that still fail on their own are dropped.
+    private boolean writeWithRetry(List<ReviewSubmission> batch, Instant deadline) {
+        Duration backoff = Duration.ofSeconds(1);
+        while (true) {
+            try {
+                batchTimer.record(() -> writeBatch(batch));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                if (batch.size() > 1) {
+                    for (ReviewSubmission submission : batch) {
+                        if (!writeWithRetry(List.of(submission), deadline)) {
+                            return false;
+                        }
+                    }
+                } else {
+                    logger.error("Dropping review submission {}: {}", batch.get(0), e.getMostSpecificCause().getMessage());
+                    droppedCounter.increment();
+                    transactionTemplate.executeWithoutResult(status -> writeCheckpoint(batch.get(0).sequence()));
+                    writtenSequence = batch.get(0).sequence();
+                }
+                return true;
+            } catch (RuntimeException e) {
+                if (Instant.now().isAfter(deadline.minus(backoff))) {
+                    logger.warn("Could not write {} queued reviews before the deadline", batch.size(), e);
+                    return false;
+                }
+                logger.warn("Could not write {} queued reviews, retrying in {}s", batch.size(), backoff.toSeconds(), e);
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_RETRY_BACKOFF) > 0 ? MAX_RETRY_BACKOFF : backoff.multipliedBy(2);
+            }
+        }
+    }
+    
+    private void writeBatch(List<ReviewSubmission> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            Set<Long> bookIds = batch.stream().map(ReviewSubmission::bookId).collect(Collectors.toSet());
+            Set<Long> existing = new HashSet<>(bookRepository.findExistingIds(bookIds));
+            
+            Map<Long, int[]> histograms = new HashMap<>();
+            List<Review> written = new ArrayList<>(batch.size());
+            for (ReviewSubmission submission : batch) {
+                if (!existing.contains(submission.bookId())) {
+                    logger.warn("Dropping review submission {}: its book no longer exists", submission.sequence());
+                    droppedCounter.increment();
+                    continue;
+                }
+                Review review = submission.toReview(entityManager.getReference(Book.class, submission.bookId()));
+                entityManager.persist(review);
+                histograms.computeIfAbsent(submission.bookId(), id -> new int[5])[review.getRating() - 1]++;
+                written.add(review);
+            }
+            entityManager.flush();
+            
+            histograms.forEach(bookRepository::adjustRatingAggregates);
+            writeCheckpoint(batch.get(batch.size() - 1).sequence());
+            for (Review review : written) {
+                eventPublisher.publishEvent(new ReviewChangedEvent(review.getId(), review.getBook().getId(), ChangeType.CREATED));
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        writtenSequence = batch.get(batch.size() - 1).sequence();
+    }
+    
+    // Called inside the transaction that wrote the entries up to sequence
+    private void writeCheckpoint(long sequence) {
+        JournalCheckpoint checkpoint = checkpointRepository.findById(journalName)
+                .orElseGet(() -> new JournalCheckpoint(journalName));
+        checkpoint.setLastSequence(Math.max(checkpoint.getLastSequence(), sequence));
+        checkpointRepository.save(checkpoint);
+    }
+}
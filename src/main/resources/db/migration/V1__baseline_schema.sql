@@ -0,0 +1,27 @@
+-- Schema as Hibernate generated it with ddl-auto=update for the original entities, before any
+-- migration existed: IDENTITY ids, no genres, versions or rating aggregates. Databases created
+-- that way are baselined at this version (spring.flyway.baseline-on-migrate) and start at V2,
+-- so everything added since belongs in a later migration, never here.
+
+CREATE TABLE books (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    author VARCHAR(100) NOT NULL,
+    created_at TIMESTAMP(6),
+    description TEXT,
+    genre VARCHAR(50),
+    isbn VARCHAR(20),
+    publication_year INTEGER,
+    title VARCHAR(200) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE reviews (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    comment TEXT NOT NULL,
+    created_at TIMESTAMP(6),
+    rating INTEGER NOT NULL CHECK ((rating >= 1) AND (rating <= 5)),
+    reviewer_name VARCHAR(100) NOT NULL,
+    book_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_reviews_book FOREIGN KEY (book_id) REFERENCES books
+);
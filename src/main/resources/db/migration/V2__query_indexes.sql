@@ -0,0 +1,20 @@
+-- One index per query shape of BookRepository and ReviewRepository. QueryPlanVerifier checks
+-- with EXPLAIN that every repository query uses one, apart from those marked @ExpectedFullScan.
+-- IF NOT EXISTS because databases baselined at V1 may already carry some of them.
+
+-- Book listings and the exports, newest or oldest first, and their keyset cursors; H2 walks an
+-- index backwards, so one index serves both directions
+CREATE INDEX IF NOT EXISTS idx_books_created_at_id ON books (created_at, id);
+
+-- Books of a year or a range of years
+CREATE INDEX IF NOT EXISTS idx_books_publication_year ON books (publication_year);
+
+-- Reviews of a book, newest first, with their keyset cursors; also serves the per-book
+-- counts, averages and the NOT EXISTS of the aggregate reset
+CREATE INDEX IF NOT EXISTS idx_reviews_book_created_at_id ON reviews (book_id, created_at, id);
+
+-- Latest reviews across all books and the review exports
+CREATE INDEX IF NOT EXISTS idx_reviews_created_at_id ON reviews (created_at, id);
+
+-- Reviews with a given rating, or at least a given rating
+CREATE INDEX IF NOT EXISTS idx_reviews_rating ON reviews (rating);
@@ -0,0 +1,15 @@
+-- Outbox of book, review and import changes, read by every instance to invalidate its own caches
+-- (bookreview.changelog.*). Ids come from the database at insert time, so they increase across
+-- instances; a gap below the highest id read is a transaction that has not committed yet.
+CREATE TABLE change_log (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    origin VARCHAR(36) NOT NULL,
+    event VARCHAR(16) NOT NULL,
+    entity_id BIGINT,
+    book_id BIGINT,
+    detail VARCHAR(16),
+    created_at TIMESTAMP DEFAULT LOCALTIMESTAMP NOT NULL
+);
+
+-- Retention deletes by age
+CREATE INDEX idx_change_log_created_at ON change_log (created_at);
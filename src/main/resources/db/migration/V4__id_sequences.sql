@@ -0,0 +1,7 @@
+-- Ids come from sequences allocated in blocks of 50 (allocationSize, pooled-lo optimizer), so
+-- Hibernate can batch inserts. The sequences start past the highest id already taken.
+CREATE SEQUENCE books_seq START WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM books) INCREMENT BY 50;
+CREATE SEQUENCE reviews_seq START WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM reviews) INCREMENT BY 50;
+
+ALTER TABLE books ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE reviews ALTER COLUMN id DROP IDENTITY;
@@ -0,0 +1,30 @@
+-- Review count, rating sum and rating histogram per book, maintained by every review write
+-- and computed here from the reviews that already exist
+ALTER TABLE books ADD COLUMN review_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN rating_sum BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN rating_1_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN rating_2_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN rating_3_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN rating_4_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN rating_5_count INTEGER DEFAULT 0 NOT NULL;
+
+MERGE INTO books b
+USING (SELECT book_id,
+              COUNT(*) AS review_count,
+              SUM(rating) AS rating_sum,
+              SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END) AS rating_1_count,
+              SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END) AS rating_2_count,
+              SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END) AS rating_3_count,
+              SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END) AS rating_4_count,
+              SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END) AS rating_5_count
+       FROM reviews
+       GROUP BY book_id) r
+ON b.id = r.book_id
+WHEN MATCHED THEN UPDATE SET
+    review_count = r.review_count,
+    rating_sum = r.rating_sum,
+    rating_1_count = r.rating_1_count,
+    rating_2_count = r.rating_2_count,
+    rating_3_count = r.rating_3_count,
+    rating_4_count = r.rating_4_count,
+    rating_5_count = r.rating_5_count;
@@ -0,0 +1,7 @@
+-- Scheduled jobs that only one instance should run (JobLeases); a row per job, added on first use
+CREATE TABLE job_leases (
+    job VARCHAR(50) NOT NULL,
+    holder VARCHAR(100),
+    locked_until TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (job)
+);
@@ -0,0 +1,2 @@
+-- Review write-behind checkpoints are kept per instance, named after its node id
+ALTER TABLE journal_checkpoints ALTER COLUMN journal SET DATA TYPE VARCHAR(150);
@@ -0,0 +1,100 @@
+package com.bookreview.bulk;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.service.BookService;
+import com.bookreview.service.ReviewService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports books and reviews in both formats and imports the files again: books come back as
+ * copies with the same fields, and reviews imported into the database they came from come back
+ * on the same books, with the same rating aggregates.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkexport;DB_CLOSE_DELAY=-1",
+        "bookreview.sample-data.enabled=false"
+})
+class BulkExportTest {
+    
+    private static final String BOOK_COPIES = "SELECT title, author, genre, isbn, description, publication_year, "
+            + "created_at, COUNT(*) AS copies FROM books "
+            + "GROUP BY title, author, genre, isbn, description, publication_year, created_at ORDER BY title";
+    
+    @Autowired
+    private BulkExportService bulkExportService;
+    
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void exportedBooksImportAsCopiesWithTheSameFields() throws IOException {
+        for (DataFormat format : DataFormat.values()) {
+            deleteAllBooks();
+            bookService.saveBook(new Book("Round Trip, \"Quoted\"", "Ann Author", "Fiction", "978-0", "Two lines,\nwith a comma", 1999));
+            bookService.saveBook(new Book("Round Trip Ünïcode", "Bob Author", null, null, null, null));
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bulkExportService.exportBooks(out, format, null);
+            ImportReport report = bulkImportService.importBooks(new StringReader(out.toString(StandardCharsets.UTF_8)), format);
+            
+            assertThat(report.getErrors()).isEmpty();
+            assertThat(report.getRowsImported()).isEqualTo(2);
+            List<Map<String, Object>> copies = jdbcTemplate.queryForList(BOOK_COPIES);
+            assertThat(copies).as(format.toString()).hasSize(2);
+            assertThat(copies).as(format + ", every field the same").allSatisfy(row -> assertThat(row.get("COPIES")).isEqualTo(2L));
+        }
+    }
+    
+    @Test
+    void exportedReviewsImportBackOntoTheirBooks() throws IOException {
+        for (DataFormat format : DataFormat.values()) {
+            deleteAllBooks();
+            Book first = bookService.saveBook(new Book("Reviewed " + format, "Author", "Fiction", null, null, 2001));
+            Book second = bookService.saveBook(new Book("Also Reviewed " + format, "Author", "Fiction", null, null, 2002));
+            reviewService.saveReview(new Review("Ann", 5, "Loved it, \"really\"\nTwo lines", first));
+            reviewService.saveReview(new Review("Bob", 2, "Not for me", first));
+            reviewService.saveReview(new Review("Cy", 4, "Good", second));
+            String reviews = "SELECT book_id, reviewer_name, rating, comment, created_at FROM reviews ORDER BY created_at, reviewer_name";
+            String aggregates = "SELECT id, review_count, rating_sum, rating_1_count, rating_2_count, rating_3_count, "
+                    + "rating_4_count, rating_5_count FROM books ORDER BY id";
+            List<Map<String, Object>> reviewsBefore = jdbcTemplate.queryForList(reviews);
+            List<Map<String, Object>> aggregatesBefore = jdbcTemplate.queryForList(aggregates);
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThat(bulkExportService.exportReviews(out, format, null)).isEqualTo(reviewsBefore.size());
+            jdbcTemplate.queryForList("SELECT id FROM reviews", Long.class).forEach(reviewService::deleteReview);
+            ImportReport report = bulkImportService.importReviews(
+                    new StringReader(out.toString(StandardCharsets.UTF_8)), format);
+            
+            assertThat(report.getErrors()).isEmpty();
+            assertThat(jdbcTemplate.queryForList(reviews)).as(format.toString()).isEqualTo(reviewsBefore);
+            assertThat(jdbcTemplate.queryForList(aggregates)).as(format.toString()).isEqualTo(aggregatesBefore);
+        }
+    }
+    
+    private void deleteAllBooks() {
+        jdbcTemplate.queryForList("SELECT id FROM books", Long.class).forEach(bookService::deleteBook);
+    }
+}
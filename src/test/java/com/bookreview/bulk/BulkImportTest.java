@@ -0,0 +1,129 @@
+package com.bookreview.bulk;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Genre;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.service.BookService;
+import com.bookreview.service.GenreService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports small CSV files in batches of two and checks what is written, what is rejected and on
+ * which line, with field and record limits low enough for a test file to reach them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkimport;DB_CLOSE_DELAY=-1",
+        "bookreview.sample-data.enabled=false",
+        "bookreview.import.batch-size=2",
+        "bookreview.import.max-field-length=100",
+        "bookreview.import.max-record-length=400"
+})
+class BulkImportTest {
+    
+    private static final String BOOK_HEADER = "title,author,genre,isbn,description,publication_year\n";
+    
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void booksAreImportedInBatchesAndLinkedToTheirGenre() throws IOException {
+        // Spreadsheet tools start the file with a byte order mark, and may end lines with \r\n
+        ImportReport report = importBooks("\uFEFF" + BOOK_HEADER.replace("\n", "\r\n")
+                + "Batched One,Author,Lyric Poetry,,,2001\r\n"
+                + "Batched Two,Author,lyric  poetry ,,,2002\r\n"
+                + "Batched Three,Author,Drama,,,2003\r\n"
+                + "Batched Four,Author,,,,2004\r\n"
+                + "Batched Five,Author,Lyric Poetry,,,2005\r\n");
+        
+        assertThat(report.getRowsRead()).isEqualTo(5);
+        assertThat(report.getRowsImported()).isEqualTo(5);
+        assertThat(report.getErrors()).isEmpty();
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT genre_id FROM books WHERE title LIKE 'Batched %' "
+                + "AND genre IN ('Lyric Poetry', 'lyric  poetry')", Long.class)).hasSize(1);
+        assertThat(genreService.findByName("Lyric Poetry")).get().extracting(Genre::getBookCount).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT genre_id FROM books WHERE title = 'Batched Four'", Long.class)).isNull();
+    }
+    
+    @Test
+    void badRowsAreRejectedWithTheirLineAndTheOthersImported() throws IOException {
+        ImportReport report = importBooks(BOOK_HEADER
+                + "Kept Line Two,Author,Essays,,,2001\n"
+                + "Too,Few\n"
+                + "\"Kept Across\n"
+                + "Lines,\",Author,Essays,,,2002\n"
+                + "Bad Year,Author,Essays,,,soon\n"
+                + "\"Never Closed,Author,Essays,,,2003\n"
+                + "x".repeat(150) + "\n"
+                + "Kept Line Nine,Author,Essays,,,2004\n"
+                + String.join(",", List.of("y".repeat(90), "y".repeat(90), "y".repeat(90), "y".repeat(90), "y".repeat(90), "1"))
+                + "\n"
+                + "Kept Line Eleven,Author,Essays,,,2005\n");
+        
+        assertThat(report.getRowsImported()).isEqualTo(4);
+        assertThat(report.getRowsRejected()).isEqualTo(4);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::line).containsExactly(3L, 6L, 7L, 10L);
+        assertThat(report.getErrors().get(0).message()).isEqualTo("expected 6 columns but found 2");
+        assertThat(report.getErrors().get(1).message()).contains("publication_year");
+        assertThat(report.getErrors().get(2).message())
+                .isEqualTo("field longer than 100 characters (is the quote opened on line 7 closed?)");
+        assertThat(report.getErrors().get(3).message()).isEqualTo("record longer than 400 characters");
+        assertThat(jdbcTemplate.queryForList("SELECT title FROM books WHERE genre = 'Essays' ORDER BY publication_year", String.class))
+                .containsExactly("Kept Line Two", "Kept Across\nLines,", "Kept Line Nine", "Kept Line Eleven");
+    }
+    
+    @Test
+    void anOverlongHeaderRejectsTheFile() throws IOException {
+        ImportReport report = importBooks("\"title," + "z".repeat(200) + "\nNot Read,Author,Essays,,,2001\n");
+        
+        assertThat(report.getRowsImported()).isZero();
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::line).containsExactly(1L);
+        assertThat(report.getErrors().get(0).message()).startsWith("header field longer than 100 characters");
+    }
+    
+    @Test
+    void importedReviewsUpdateTheirBooksRatingAggregates() throws IOException {
+        Book book = bookService.saveBook(new Book("Reviewed By Import", "Author", "Fiction", null, null, 2010));
+        Book other = bookService.saveBook(new Book("Also Reviewed By Import", "Author", "Fiction", null, null, 2011));
+        
+        ImportReport report = bulkImportService.importReviews(new StringReader("book_id,reviewer_name,rating,comment\n"
+                + book.getId() + ",Ann,5,Loved it\n"
+                + book.getId() + ",Bob,2,Not for me\n"
+                + other.getId() + ",Cy,4,Good\n"
+                + "999999,Dee,3,No such book\n"
+                + book.getId() + ",Eve,9,Out of range\n"
+                + book.getId() + ",Fay,5,Again\n"), DataFormat.CSV);
+        
+        assertThat(report.getRowsImported()).isEqualTo(4);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::line).containsExactlyInAnyOrder(5L, 6L);
+        Book stored = bookRepository.findById(book.getId()).orElseThrow();
+        assertThat(stored.getReviewCount()).isEqualTo(3);
+        assertThat(stored.getRatingSum()).isEqualTo(12);
+        assertThat(stored.getRatingHistogram()).containsExactly(0, 1, 0, 0, 2);
+        assertThat(bookRepository.findById(other.getId()).orElseThrow().getRatingHistogram()).containsExactly(0, 0, 0, 1, 0);
+    }
+    
+    private ImportReport importBooks(String csv) throws IOException {
+        return bulkImportService.importBooks(new StringReader(csv), DataFormat.CSV);
+    }
+}
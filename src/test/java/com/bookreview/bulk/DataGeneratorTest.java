@@ -0,0 +1,123 @@
+package com.bookreview.bulk;
+
+import com.bookreview.model.Book;
+import com.bookreview.service.BookService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generates small datasets on top of the sample data and checks the stored aggregates against
+ * the reviews, that the same spec writes the same rows again, and that id ranges reserved
+ * concurrently with other writes do not overlap.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:generator;DB_CLOSE_DELAY=-1",
+        "bookreview.generate.batch-size=100"
+})
+class DataGeneratorTest {
+    
+    private static final String BOOK_COLUMNS = "SELECT title, author, genre, genre_id, isbn, description, " +
+            "publication_year, created_at, review_count, rating_sum, rating_1_count, rating_5_count FROM books ";
+    
+    private static final String REVIEW_COLUMNS = "SELECT reviewer_name, rating, comment, created_at FROM reviews ";
+    
+    @Autowired
+    private DataGenerator dataGenerator;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void booksCarryTheAggregatesOfTheirGeneratedReviews() throws InterruptedException {
+        DataGenerator.GeneratedDataset dataset = dataGenerator.generate(new DataGenerator.Spec(2500, 8, 1));
+        
+        assertThat(count("SELECT COUNT(*) FROM books WHERE id >= ?", dataset.firstBookId())).isEqualTo(2500);
+        assertThat(count("SELECT COUNT(*) FROM reviews WHERE id >= ?", dataset.firstReviewId())).isEqualTo(dataset.reviews());
+        assertThat(dataset.reviews()).isBetween(2500L * 8 * 9 / 10, 2500L * 8 * 11 / 10);
+        assertThat(count("SELECT COUNT(*) FROM books b WHERE b.id >= ? AND (b.review_count, b.rating_sum, b.rating_5_count) IS DISTINCT FROM " +
+                "(SELECT COUNT(*), COALESCE(SUM(r.rating), 0), COUNT(CASE WHEN r.rating = 5 THEN 1 END) FROM reviews r WHERE r.book_id = b.id)",
+                dataset.firstBookId())).isZero();
+        // Zipfian: the most reviewed book has far more than the average, and some have none
+        assertThat(count("SELECT MAX(review_count) FROM books WHERE id >= ?", dataset.firstBookId())).isGreaterThan(8 * 50);
+        assertThat(count("SELECT COUNT(*) FROM books WHERE id >= ? AND review_count = 0", dataset.firstBookId())).isPositive();
+        
+        // Books saved afterwards take ids from the block Hibernate already holds, then above the generated range
+        for (int i = 0; i < 60; i++) {
+            Long id = bookService.saveBook(new Book("After Generation " + i, "Author", "Fiction", null, null, 2024)).getId();
+            assertThat(id < dataset.firstBookId() || id >= dataset.firstBookId() + dataset.books()).as("id %d", id).isTrue();
+        }
+    }
+    
+    @Test
+    void theSameSpecWritesTheSameRows() throws InterruptedException {
+        DataGenerator.Spec spec = new DataGenerator.Spec(1200, 5, 7);
+        DataGenerator.GeneratedDataset first = dataGenerator.generate(spec);
+        DataGenerator.GeneratedDataset second = dataGenerator.generate(spec);
+        
+        assertThat(second.reviews()).isEqualTo(first.reviews());
+        assertThat(books(second)).isEqualTo(books(first));
+        assertThat(reviews(second)).isEqualTo(reviews(first));
+    }
+    
+    @Test
+    void concurrentGenerationsAndSavesTakeDisjointIds() {
+        List<CompletableFuture<DataGenerator.GeneratedDataset>> generations = new ArrayList<>();
+        for (int seed = 1; seed <= 3; seed++) {
+            DataGenerator.Spec spec = new DataGenerator.Spec(300, 2, seed);
+            generations.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dataGenerator.generate(spec);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        List<Long> savedIds = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            savedIds.add(bookService.saveBook(new Book("During Generation " + i, "Author", "Fiction", null, null, 2024)).getId());
+        }
+        List<DataGenerator.GeneratedDataset> datasets = generations.stream().map(CompletableFuture::join).toList();
+        
+        for (DataGenerator.GeneratedDataset dataset : datasets) {
+            assertThat(books(dataset)).hasSize(300);
+            assertThat(reviews(dataset)).hasSize((int) dataset.reviews());
+            for (Long id : savedIds) {
+                assertThat(id < dataset.firstBookId() || id >= dataset.firstBookId() + dataset.books()).as("id %d", id).isTrue();
+            }
+            for (DataGenerator.GeneratedDataset other : datasets) {
+                if (other != dataset) {
+                    assertThat(other.firstBookId() >= dataset.firstBookId() + dataset.books()
+                            || dataset.firstBookId() >= other.firstBookId() + other.books()).isTrue();
+                    assertThat(other.firstReviewId() >= dataset.firstReviewId() + dataset.reviews()
+                            || dataset.firstReviewId() >= other.firstReviewId() + other.reviews()).isTrue();
+                }
+            }
+        }
+    }
+    
+    private List<Map<String, Object>> books(DataGenerator.GeneratedDataset dataset) {
+        return jdbcTemplate.queryForList(BOOK_COLUMNS + "WHERE id >= ? AND id < ? ORDER BY id",
+                dataset.firstBookId(), dataset.firstBookId() + dataset.books());
+    }
+    
+    private List<Map<String, Object>> reviews(DataGenerator.GeneratedDataset dataset) {
+        return jdbcTemplate.queryForList(REVIEW_COLUMNS + "WHERE id >= ? AND id < ? ORDER BY id",
+                dataset.firstReviewId(), dataset.firstReviewId() + dataset.reviews());
+    }
+    
+    private Long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
@@ -0,0 +1,162 @@
+package com.bookreview.cache;
+
+import com.bookreview.service.BookPageKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Holds a leader's load open on a latch while other callers ask for the same key, and checks
+ * what the waiters get back.
+ */
+class SingleFlightTest {
+    
+    private static final int WAITERS = 8;
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", true, Duration.ofSeconds(30), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        
+        Future<String> leader = executor.submit(() -> flight.load(1L, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "loaded";
+        }));
+        awaitCount("loaded", 1);
+        List<Future<String>> waiters = submitWaiters(flight, () -> {
+            loads.incrementAndGet();
+            return "not shared";
+        });
+        awaitWaiters();
+        release.countDown();
+        
+        assertThat(leader.get()).isEqualTo("loaded");
+        for (Future<String> waiter : waiters) {
+            assertThat(waiter.get()).isEqualTo("loaded");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("coalesced")).isEqualTo(WAITERS);
+        assertThat(flight.load(1L, () -> "next")).as("nothing is kept once the load completes").isEqualTo("next");
+    }
+    
+    @Test
+    void aCallerThatSawACommitDoesNotJoinALoadStartedBeforeIt() throws Exception {
+        SingleFlight<BookPageKey, String> flight = new SingleFlight<>("test", true, Duration.ofSeconds(30), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // The first page load starts while the book is at version 1, then a review commits
+        Future<String> leader = executor.submit(() -> flight.load(new BookPageKey(1L, 1L, 20), () -> {
+            await(release);
+            return "page at version 1";
+        }));
+        awaitCount("loaded", 1);
+        Future<String> sameVersion = executor.submit(() -> flight.load(new BookPageKey(1L, 1L, 20), () -> "not shared"));
+        awaitWaiters();
+        
+        assertThat(flight.load(new BookPageKey(1L, 2L, 20), () -> "page at version 2"))
+                .as("a caller that checked version 2 loads on its own").isEqualTo("page at version 2");
+        release.countDown();
+        assertThat(leader.get()).isEqualTo("page at version 1");
+        assertThat(sameVersion.get()).as("a caller that checked version 1 still joins").isEqualTo("page at version 1");
+        assertThat(count("loaded")).isEqualTo(2);
+        assertThat(count("coalesced")).isEqualTo(1);
+    }
+    
+    @Test
+    void theLeadersExceptionReachesEveryWaiter() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", true, Duration.ofSeconds(30), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+        
+        Future<String> leader = executor.submit(() -> flight.load(1L, () -> {
+            await(release);
+            throw failure;
+        }));
+        awaitCount("loaded", 1);
+        List<Future<String>> waiters = submitWaiters(flight, () -> "not shared");
+        awaitWaiters();
+        release.countDown();
+        
+        assertThatThrownBy(leader::get).hasCause(failure);
+        for (Future<String> waiter : waiters) {
+            assertThatThrownBy(waiter::get).hasCause(failure);
+        }
+    }
+    
+    @Test
+    void waitersGiveUpAtTheDeadlineAndLaterCallersLoadAgain() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", true, Duration.ofMillis(200), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        Future<String> leader = executor.submit(() -> flight.load(1L, () -> {
+            await(release);
+            return "late";
+        }));
+        awaitCount("loaded", 1);
+        assertThatThrownBy(() -> flight.load(1L, () -> "not shared")).isInstanceOf(QueryTimeoutException.class);
+        assertThat(count("timed_out")).isEqualTo(1);
+        
+        assertThat(flight.load(1L, () -> "fresh")).isEqualTo("fresh");
+        assertThat(flight.load(2L, () -> "other key")).isEqualTo("other key");
+        release.countDown();
+        assertThat(leader.get()).isEqualTo("late");
+    }
+    
+    private List<Future<String>> submitWaiters(SingleFlight<Long, String> flight, Supplier<String> loader) {
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(executor.submit(() -> flight.load(1L, loader)));
+        }
+        return waiters;
+    }
+    
+    // Waiters only count once they complete, so give them time to join before releasing the leader
+    private static void awaitWaiters() throws InterruptedException {
+        Thread.sleep(200);
+    }
+    
+    private void awaitCount(String outcome, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count(outcome) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+    
+    private double count(String outcome) {
+        return meterRegistry.get("bookreview.single.flight.requests").tag("outcome", outcome).counter().count();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
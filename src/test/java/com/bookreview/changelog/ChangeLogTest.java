@@ -0,0 +1,124 @@
+package com.bookreview.changelog;
+
+import com.bookreview.BookReviewApplication;
+import com.bookreview.cache.EntityCache;
+import com.bookreview.model.Book;
+import com.bookreview.service.BookService;
+import com.bookreview.service.RatingAggregateRepairJob;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a second instance of the application against the same in-memory database and checks
+ * that a write on either one reaches the other's caches through the change log. Polls are
+ * triggered by hand, so nothing depends on timing.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ChangeLogTest.URL,
+        "bookreview.changelog.enabled=true",
+        "bookreview.changelog.poll-interval=1h"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChangeLogTest {
+    
+    static final String URL = "jdbc:h2:mem:changelog;DB_CLOSE_DELAY=-1";
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private EntityCache<Book> bookCache;
+    
+    @Autowired
+    private ChangeLogPoller poller;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private ConfigurableApplicationContext other;
+    
+    @BeforeAll
+    void startOtherInstance() {
+        other = new SpringApplicationBuilder(BookReviewApplication.class)
+                .run("--spring.datasource.url=" + URL,
+                        "--bookreview.changelog.enabled=true",
+                        "--bookreview.changelog.poll-interval=1h",
+                        "--server.port=0");
+    }
+    
+    @AfterAll
+    void stopOtherInstance() {
+        other.close();
+    }
+    
+    @Test
+    void aWriteOnOneInstanceEvictsTheOtherInstancesCache() {
+        Book book = bookService.saveBook(new Book("Original Title", "Author", "Fiction", null, null, 2001));
+        BookService otherBookService = other.getBean(BookService.class);
+        assertThat(otherBookService.getBookById(book.getId())).get().extracting(Book::getTitle).isEqualTo("Original Title");
+        
+        book.setTitle("Changed Title");
+        bookService.saveBook(book);
+        Integer logged = countChanges();
+        other.getBean(ChangeLogPoller.class).poll();
+        
+        assertThat(otherBookService.getBookById(book.getId())).get().extracting(Book::getTitle).isEqualTo("Changed Title");
+        assertThat(countChanges()).as("replayed changes are not logged again").isEqualTo(logged);
+    }
+    
+    @Test
+    void aChangeCommittedAfterALaterOneIsStillReplayed() {
+        Book first = bookService.saveBook(new Book("First", "Author", "Fiction", null, null, 2002));
+        Book second = bookService.saveBook(new Book("Second", "Author", "Fiction", null, null, 2003));
+        poller.poll();
+        bookService.getBookById(first.getId());
+        bookService.getBookById(second.getId());
+        
+        // Another instance took ids next and next + 1, and the later transaction committed first
+        long next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM change_log", Long.class);
+        insertChange(next + 1, second.getId());
+        poller.poll();
+        assertThat(bookCache.contains(second.getId())).isFalse();
+        assertThat(bookCache.contains(first.getId())).isTrue();
+        
+        insertChange(next, first.getId());
+        poller.poll();
+        assertThat(bookCache.contains(first.getId())).isFalse();
+        jdbcTemplate.execute("ALTER TABLE change_log ALTER COLUMN id RESTART WITH " + (next + 2));
+    }
+    
+    @Test
+    void aRatingRepairOnOneInstanceEvictsTheBooksItCorrectedOnTheOther() {
+        Book book = bookService.saveBook(new Book("Drifted", "Author", "Fiction", null, null, 2004));
+        jdbcTemplate.update("UPDATE books SET review_count = 5, rating_sum = 20, version = version + 1 WHERE id = ?", book.getId());
+        poller.poll();
+        bookCache.invalidate(book.getId());
+        assertThat(bookService.getBookById(book.getId())).get().extracting(Book::getReviewCount).isEqualTo(5);
+        
+        Integer logged = countChanges();
+        assertThat(other.getBean(RatingAggregateRepairJob.class).recomputeAll()).isEqualTo(1);
+        assertThat(countChanges()).as("one entry for the whole repair").isEqualTo(logged + 1);
+        
+        poller.poll();
+        assertThat(bookCache.contains(book.getId())).isFalse();
+        assertThat(bookService.getBookById(book.getId())).get().extracting(Book::getReviewCount).isEqualTo(0);
+    }
+    
+    private void insertChange(long id, Long bookId) {
+        jdbcTemplate.update("INSERT INTO change_log (id, origin, event, entity_id, book_id, detail) VALUES (?, 'elsewhere', ?, ?, ?, 'UPDATED')",
+                id, ChangeLogWriter.BOOK_CHANGED, bookId, bookId);
+    }
+    
+    private Integer countChanges() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_log", Integer.class);
+    }
+}
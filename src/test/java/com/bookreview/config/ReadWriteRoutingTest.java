@@ -0,0 +1,109 @@
+package com.bookreview.config;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.BookSummary;
+import com.bookreview.service.BookService;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Runs the application against two separate H2 databases, a primary and a "replica" that
+ * never receives the primary's writes, so every read shows which of them it was routed to.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTest.PRIMARY_URL,
+        "bookreview.datasource.replica.url=" + ReadWriteRoutingTest.REPLICA_URL,
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "bookreview.datasource.replica.maximum-pool-size=10",
+        "bookreview.db.limit-concurrency=true"
+})
+@AutoConfigureMockMvc
+class ReadWriteRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    // The replica gets the schema and a book of its own before the application starts
+    static {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "password").load().migrate();
+        new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "password")).update(
+                "INSERT INTO books (id, title, author, created_at) VALUES (1000, 'Replica Book', 'Replica Author', CURRENT_TIMESTAMP)");
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Test
+    void readOnlyTransactionsReadFromTheReplica() {
+        assertThat(bookService.getBookSummariesPage(null, 100).items())
+                .extracting(BookSummary::title)
+                .containsExactly("Replica Book");
+        assertThat(bookService.getTotalBookCount()).isEqualTo(1);
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        bookService.saveBook(new Book("Primary Book", "Primary Author", "Routing", null, null, 2024));
+
+        // JdbcTemplate runs outside a transaction, so it reads from the primary
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE title = 'Primary Book'", Integer.class))
+                .isEqualTo(1);
+        assertThat(bookService.getBookSummariesPage(null, 100).items())
+                .extracting(BookSummary::title)
+                .doesNotContain("Primary Book");
+    }
+
+    @Test
+    void eachPoolIsLimitedToItsOwnSize() {
+        assertThat(primaryDataSource).isInstanceOfSatisfying(ConcurrencyLimitedDataSource.class,
+                limited -> assertThat(limited.getAvailablePermits()).isEqualTo(20));
+        assertThat(replicaDataSource).isInstanceOfSatisfying(ConcurrencyLimitedDataSource.class,
+                limited -> assertThat(limited.getAvailablePermits()).isEqualTo(10));
+    }
+
+    @Test
+    void aClientThatWroteReadsItsWritesFromThePrimary() throws Exception {
+        MvcResult write = mockMvc.perform(post("/books/new")
+                        .param("title", "Routed Book").param("author", "Routed Author").param("genre", "Routing"))
+                .andReturn();
+        Cookie readYourWrites = write.getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(readYourWrites).isNotNull();
+
+        String writerView = mockMvc.perform(get("/books").cookie(readYourWrites))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(writerView).contains("Routed Book");
+
+        String otherView = mockMvc.perform(get("/books")).andReturn().getResponse().getContentAsString();
+        assertThat(otherView).contains("Replica Book").doesNotContain("Routed Book");
+    }
+}
@@ -0,0 +1,143 @@
+package com.bookreview.controller;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.service.BookService;
+import com.bookreview.service.ReviewService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reads the /api/v1 JSON bodies, as written field by field by JsonFields, in full and narrowed
+ * with ?fields=.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:apijson;DB_CLOSE_DELAY=-1",
+        "bookreview.sample-data.enabled=false"
+})
+@AutoConfigureMockMvc(addFilters = false)
+class ApiJsonTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Test
+    void aBookIsWrittenWithEveryFieldInOrder() throws Exception {
+        Book book = bookService.saveBook(new Book("Json Book", "Jay Son", "Fiction", "978-1", "About \"quotes\"", 2020));
+        reviewService.saveReview(new Review("Ann", 4, "Good", book));
+        reviewService.saveReview(new Review("Bob", 5, "Better", book));
+        
+        MvcResult result = mockMvc.perform(get("/api/v1/books/" + book.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.id").value(book.getId()))
+                .andExpect(jsonPath("$.title").value("Json Book"))
+                .andExpect(jsonPath("$.description").value("About \"quotes\""))
+                .andExpect(jsonPath("$.publicationYear").value(2020))
+                .andExpect(jsonPath("$.createdAt").isString())
+                .andExpect(jsonPath("$.reviewCount").value(2))
+                .andExpect(jsonPath("$.averageRating").value(4.5))
+                .andReturn();
+        assertThat(fieldNames(body(result))).containsExactly("id", "title", "author", "genre", "isbn", "description",
+                "publicationYear", "createdAt", "updatedAt", "reviewCount", "averageRating");
+        
+        mockMvc.perform(get("/api/v1/books/" + book.getId() + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId").value(book.getId()))
+                .andExpect(jsonPath("$.weightedRating").isNumber())
+                .andExpect(jsonPath("$.histogram.length()").value(5))
+                .andExpect(jsonPath("$.histogram[2]").value(0))
+                .andExpect(jsonPath("$.histogram[3]").value(1))
+                .andExpect(jsonPath("$.histogram[4]").value(1));
+    }
+    
+    @Test
+    void pagesCarryTheirItemsAndTheNextCursor() throws Exception {
+        Book book = bookService.saveBook(new Book("Paged Book", "Author", "Fiction", null, null, 2021));
+        for (String reviewer : List.of("Ann", "Bob", "Cy")) {
+            reviewService.saveReview(new Review(reviewer, 3, "Paged review", book));
+        }
+        
+        JsonNode first = body(mockMvc.perform(get("/api/v1/books/" + book.getId() + "/reviews").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].reviewerName").value("Cy"))
+                .andExpect(jsonPath("$.items[0].bookTitle").value("Paged Book"))
+                .andExpect(jsonPath("$.next").isString())
+                .andReturn());
+        mockMvc.perform(get("/api/v1/books/" + book.getId() + "/reviews")
+                        .param("size", "2").param("after", first.get("next").asText()))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].reviewerName").value("Ann"))
+                .andExpect(jsonPath("$.next").isEmpty());
+    }
+    
+    @Test
+    void onlyTheRequestedFieldsAreWrittenInDeclarationOrder() throws Exception {
+        Book book = bookService.saveBook(new Book("Narrowed Book", "Author", "Fiction", null, null, 2022));
+        reviewService.saveReview(new Review("Ann", 2, "Narrowed review", book));
+        
+        JsonNode reviews = body(mockMvc.perform(get("/api/v1/books/" + book.getId() + "/reviews")
+                        .param("fields", " rating, id,,rating"))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(fieldNames(reviews.get("items").get(0))).containsExactly("id", "rating");
+        assertThat(reviews.get("items").get(0).get("rating").asInt()).isEqualTo(2);
+        
+        JsonNode detail = body(mockMvc.perform(get("/api/v1/books/" + book.getId()).param("fields", "title"))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(fieldNames(detail)).containsExactly("title");
+        
+        JsonNode all = body(mockMvc.perform(get("/api/v1/books/" + book.getId()).param("fields", " "))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(fieldNames(all)).as("a blank list selects every field").hasSize(11);
+    }
+    
+    @Test
+    void anUnknownFieldIsABadRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/reviews").param("fields", "id,nope"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+        assertThat(result.getResponse().getErrorMessage()).contains("Unknown field 'nope'");
+        
+        mockMvc.perform(get("/api/v1/books/top-rated").param("fields", "rank,isbn"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    private JsonNode body(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+    
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
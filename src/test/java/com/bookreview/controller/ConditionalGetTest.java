@@ -0,0 +1,91 @@
+package com.bookreview.controller;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.service.BookService;
+import com.bookreview.service.ReviewService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Changes books and reviews behind the application's back, as a write on another instance does
+ * before the change log reaches this one, and checks that a page is never served from the stale
+ * cached entity under the ETag of the new version.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:conditionalget;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc(addFilters = false)
+class ConditionalGetTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void aBookChangedElsewhereIsRenderedAndTaggedAtItsNewVersion() throws Exception {
+        Book book = bookService.saveBook(new Book("Cached Title", "Author", "Fiction", null, null, 2001));
+        assertBookPageFollowsTheDatabase(book, "/books/" + book.getId());
+    }
+    
+    @Test
+    void aBookReviewListChangedElsewhereIsRenderedAndTaggedAtItsNewVersion() throws Exception {
+        Book book = bookService.saveBook(new Book("Cached Title", "Author", "Fiction", null, null, 2003));
+        reviewService.saveReview(new Review("Reviewer", 5, "Listed", book));
+        assertBookPageFollowsTheDatabase(book, "/reviews/book/" + book.getId());
+    }
+    
+    @Test
+    void aReviewChangedElsewhereIsRenderedAndTaggedAtItsNewVersion() throws Exception {
+        Book book = bookService.saveBook(new Book("Reviewed Book", "Author", "Fiction", null, null, 2002));
+        Review review = reviewService.saveReview(new Review("Reviewer", 4, "Cached comment", book));
+        String page = "/reviews/" + review.getId();
+        String staleTag = get(page, null).getResponse().getHeader(HttpHeaders.ETAG);
+        
+        jdbcTemplate.update("UPDATE reviews SET comment = 'Edited elsewhere', version = version + 1 WHERE id = ?", review.getId());
+        MvcResult changed = get(page, staleTag);
+        assertThat(changed.getResponse().getStatus()).isEqualTo(200);
+        assertThat(changed.getResponse().getContentAsString()).contains("Edited elsewhere").doesNotContain("Cached comment");
+        String currentTag = changed.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(currentTag).isNotEqualTo(staleTag);
+        
+        assertThat(get(page, currentTag).getResponse().getStatus()).isEqualTo(304);
+    }
+    
+    private void assertBookPageFollowsTheDatabase(Book book, String page) throws Exception {
+        String staleTag = get(page, null).getResponse().getHeader(HttpHeaders.ETAG);
+        
+        jdbcTemplate.update("UPDATE books SET title = 'Changed Elsewhere', version = version + 1 WHERE id = ?", book.getId());
+        MvcResult changed = get(page, staleTag);
+        assertThat(changed.getResponse().getStatus()).isEqualTo(200);
+        assertThat(changed.getResponse().getContentAsString()).contains("Changed Elsewhere").doesNotContain("Cached Title");
+        String currentTag = changed.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(currentTag).isNotEqualTo(staleTag);
+        
+        assertThat(get(page, currentTag).getResponse().getStatus()).isEqualTo(304);
+    }
+    
+    private MvcResult get(String path, String ifNoneMatch) throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(path);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request).andReturn();
+    }
+}
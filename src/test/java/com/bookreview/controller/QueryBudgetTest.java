@@ -0,0 +1,209 @@
+package com.bookreview.controller;
+
+import com.bookreview.cache.EntityCache;
+import com.bookreview.cache.FragmentCache;
+import com.bookreview.metrics.JdbcStatementCounter;
+import com.bookreview.metrics.QueryBudget;
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.ReviewRepository;
+import com.bookreview.service.DashboardService;
+import com.bookreview.service.GenreService;
+import com.bookreview.service.RatingAggregateRepairJob;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Runs one request against every handler of the page and JSON API controllers and fails when it issues
+ * more JDBC statements than the handler's @QueryBudget. The database holds enough books and
+ * reviews to fill a page, and the caches and dashboard snapshot are dropped before each
+ * request, so an N+1 query shows up as a budget overrun rather than hiding behind a cache.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:querybudget;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc(addFilters = false)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetTest {
+
+    private static final int BOOKS = 30;
+
+    private static final int REVIEWS_PER_BOOK = 5;
+
+    private static final Set<Class<?>> CONTROLLERS = Set.of(BookController.class, ReviewController.class, HomeController.class,
+            BookApiController.class, ReviewApiController.class, GenreApiController.class);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcStatementCounter statementCounter;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private RatingAggregateRepairJob ratingAggregateRepairJob;
+
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private EntityCache<Book> bookCache;
+
+    @Autowired
+    private EntityCache<Review> reviewCache;
+    
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    private final List<Book> books = new ArrayList<>();
+
+    private final List<Review> reviews = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book("Budget Book " + i, "Author " + (i % 7), "Genre " + (i % 3), null,
+                    "Description of book " + i, 1950 + i);
+            book.setCreatedAt(start.plusDays(i));
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+        for (Book book : books) {
+            for (int r = 0; r < REVIEWS_PER_BOOK; r++) {
+                Review review = new Review("Reader " + r, 1 + (r % 5), "Review " + r + " of " + book.getTitle(), book);
+                review.setCreatedAt(book.getCreatedAt().plusHours(r + 1));
+                reviews.add(review);
+            }
+        }
+        reviewRepository.saveAll(reviews);
+        ratingAggregateRepairJob.recomputeAll();
+        genreService.assignMissingGenres();
+    }
+
+    // One representative request per endpoint, keyed by "METHOD pattern". Writes use their own
+    // rows so the order in which the requests run does not matter.
+    private Map<String, Supplier<RequestBuilder>> requests() {
+        Book book = books.get(0);
+        Book editedBook = books.get(1);
+        Book deletedBook = books.get(BOOKS - 1);
+        Review review = reviews.get(0);
+        Review editedReview = reviews.get(REVIEWS_PER_BOOK);
+        Review deletedReview = reviews.get(2 * REVIEWS_PER_BOOK);
+
+        Map<String, Supplier<RequestBuilder>> requests = new LinkedHashMap<>();
+        requests.put("GET /", () -> get("/"));
+        requests.put("GET /about", () -> get("/about"));
+        requests.put("GET /books", () -> get("/books"));
+        requests.put("GET /books/new", () -> get("/books/new"));
+        requests.put("POST /books/new", () -> post("/books/new")
+                .param("title", "New Book").param("author", "New Author").param("genre", "Genre 0"));
+        requests.put("GET /books/{id}", () -> get("/books/{id}", book.getId()));
+        requests.put("GET /books/{id}/edit", () -> get("/books/{id}/edit", book.getId()));
+        requests.put("POST /books/{id}/edit", () -> post("/books/{id}/edit", editedBook.getId())
+                .param("title", "Edited Book").param("author", "Edited Author").param("genre", "Genre 2"));
+        requests.put("POST /books/{id}/delete", () -> post("/books/{id}/delete", deletedBook.getId()));
+        requests.put("GET /books/genre/{genre}", () -> get("/books/genre/{genre}", "Genre 0"));
+        requests.put("GET /reviews", () -> get("/reviews"));
+        requests.put("GET /reviews/book/{bookId}", () -> get("/reviews/book/{bookId}", book.getId()));
+        requests.put("GET /reviews/new", () -> get("/reviews/new").param("search", "Budget"));
+        requests.put("POST /reviews/new", () -> post("/reviews/new").param("bookId", book.getId().toString())
+                .param("reviewerName", "New Reader").param("rating", "4").param("comment", "A new review"));
+        requests.put("GET /reviews/{id}", () -> get("/reviews/{id}", review.getId()));
+        requests.put("GET /reviews/{id}/edit", () -> get("/reviews/{id}/edit", review.getId()));
+        requests.put("POST /reviews/{id}/edit", () -> post("/reviews/{id}/edit", editedReview.getId())
+                .param("reviewerName", "Edited Reader").param("rating", "2").param("comment", "An edited review"));
+        requests.put("POST /reviews/{id}/delete", () -> post("/reviews/{id}/delete", deletedReview.getId()));
+        requests.put("GET /api/v1/books", () -> get("/api/v1/books").param("fields", "id,title,averageRating"));
+        requests.put("GET /api/v1/books/search", () -> get("/api/v1/books/search").param("q", "Budget"));
+        requests.put("GET /api/v1/books/top-rated", () -> get("/api/v1/books/top-rated").param("genre", "Genre 1"));
+        requests.put("GET /api/v1/books/{id}", () -> get("/api/v1/books/{id}", book.getId()));
+        requests.put("GET /api/v1/books/{id}/stats", () -> get("/api/v1/books/{id}/stats", book.getId()));
+        requests.put("GET /api/v1/books/{id}/reviews", () -> get("/api/v1/books/{id}/reviews", book.getId()));
+        requests.put("GET /api/v1/reviews", () -> get("/api/v1/reviews"));
+        requests.put("GET /api/v1/reviews/{id}", () -> get("/api/v1/reviews/{id}", review.getId()));
+        requests.put("GET /api/v1/genres", () -> get("/api/v1/genres"));
+        return requests;
+    }
+
+    @TestFactory
+    Stream<DynamicTest> everyHandlerStaysWithinItsQueryBudget() {
+        Map<String, Supplier<RequestBuilder>> requests = requests();
+        List<DynamicTest> tests = new ArrayList<>();
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+            HandlerMethod handler = entry.getValue();
+            if (!CONTROLLERS.contains(handler.getBeanType())) {
+                continue;
+            }
+            RequestMappingInfo info = entry.getKey();
+            for (String pattern : info.getPatternValues()) {
+                String key = info.getMethodsCondition().getMethods().iterator().next() + " " + pattern;
+                tests.add(DynamicTest.dynamicTest(key, () -> assertWithinBudget(key, handler, requests.get(key))));
+            }
+        }
+        assertThat(tests).as("handlers of the page and API controllers").isNotEmpty();
+        tests.sort((a, b) -> a.getDisplayName().compareTo(b.getDisplayName()));
+        return tests.stream();
+    }
+
+    private void assertWithinBudget(String key, HandlerMethod handler, Supplier<RequestBuilder> request) throws Exception {
+        QueryBudget budget = handler.getMethodAnnotation(QueryBudget.class);
+        assertThat(budget).as("@QueryBudget on %s", handler.getShortLogMessage()).isNotNull();
+        assertThat(request).as("a request for %s in QueryBudgetTest.requests()", key).isNotNull();
+
+        bookCache.invalidateAll();
+        reviewCache.invalidateAll();
+        fragmentCache.invalidateAll();
+        dashboardService.markStale();
+
+        statementCounter.start();
+        MvcResult result;
+        int statements;
+        try {
+            result = mockMvc.perform(request.get()).andReturn();
+        } finally {
+            statements = statementCounter.stop();
+        }
+
+        assertThat(result.getResponse().getStatus()).as("status of %s", key).isBetween(200, 399);
+        assertThat(statements)
+                .as("%s issued %d JDBC statements, over its @QueryBudget(%d)", key, statements, budget.value())
+                .isLessThanOrEqualTo(budget.value());
+    }
+}
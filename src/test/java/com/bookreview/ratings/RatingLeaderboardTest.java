@@ -0,0 +1,83 @@
+package com.bookreview.ratings;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Ranks small sets of books on a leaderboard with a prior mean of 3 weighted as ten reviews.
+ */
+class RatingLeaderboardTest {
+    
+    private final RatingLeaderboard leaderboard = new RatingLeaderboard(3.0, 10);
+    
+    @Test
+    void theWeightedRatingPullsFewReviewsTowardsThePriorMean() {
+        leaderboard.put(1, 0, "fiction", histogram(0, 0, 0, 0, 1));
+        leaderboard.put(2, 0, "fiction", histogram(0, 0, 0, 100, 0));
+        
+        assertThat(leaderboard.get(1).orElseThrow().weightedRating()).isCloseTo((10 * 3.0 + 5) / 11, within(1e-9));
+        assertThat(leaderboard.get(2).orElseThrow().weightedRating()).isCloseTo((10 * 3.0 + 400) / 110, within(1e-9));
+        assertThat(leaderboard.top(null, 10)).extracting(RatingStats::bookId)
+                .as("a hundred four-star reviews beat one five-star review").containsExactly(2L, 1L);
+        assertThat(leaderboard.get(1).orElseThrow().averageRating()).isEqualTo(5.0);
+    }
+    
+    @Test
+    void tiesGoToTheBookWithMoreReviewsThenTheOlderOne() {
+        // All three weigh exactly 3.0
+        leaderboard.put(1, 0, "fiction", histogram(0, 0, 2, 0, 0));
+        leaderboard.put(3, 0, "fiction", histogram(0, 0, 4, 0, 0));
+        leaderboard.put(2, 0, "fiction", histogram(0, 0, 4, 0, 0));
+        
+        assertThat(leaderboard.top(null, 10)).extracting(RatingStats::bookId).containsExactly(2L, 3L, 1L);
+    }
+    
+    @Test
+    void eachGenreHasItsOwnTopK() {
+        leaderboard.put(1, 0, "fantasy", histogram(0, 0, 0, 0, 20));
+        leaderboard.put(2, 0, "fantasy", histogram(0, 0, 0, 20, 0));
+        leaderboard.put(3, 0, "fantasy", histogram(0, 20, 0, 0, 0));
+        leaderboard.put(4, 0, "drama", histogram(0, 0, 0, 0, 30));
+        leaderboard.put(5, 0, null, histogram(0, 0, 0, 0, 40));
+        
+        assertThat(leaderboard.top("fantasy", 2)).extracting(RatingStats::bookId).containsExactly(1L, 2L);
+        assertThat(leaderboard.top("drama", 10)).extracting(RatingStats::bookId).containsExactly(4L);
+        assertThat(leaderboard.top("poetry", 10)).isEmpty();
+        assertThat(leaderboard.top(null, 3)).extracting(RatingStats::bookId).containsExactly(5L, 4L, 1L);
+        
+        // A book that changes genre leaves the old ranking
+        leaderboard.put(4, 1, "fantasy", histogram(0, 0, 0, 0, 30));
+        assertThat(leaderboard.top("drama", 10)).isEmpty();
+        assertThat(leaderboard.top("fantasy", 10)).extracting(RatingStats::bookId).containsExactly(4L, 1L, 2L, 3L);
+    }
+    
+    @Test
+    void aBookIsDroppedWhenItsLastReviewIsDeleted() {
+        leaderboard.put(1, 0, "fiction", histogram(0, 0, 0, 1, 0));
+        leaderboard.put(2, 0, "fiction", histogram(0, 0, 1, 0, 0));
+        
+        leaderboard.put(1, 1, "fiction", histogram(0, 0, 0, 0, 0));
+        
+        assertThat(leaderboard.contains(1)).isFalse();
+        assertThat(leaderboard.size()).isEqualTo(1);
+        assertThat(leaderboard.top("fiction", 10)).extracting(RatingStats::bookId).containsExactly(2L);
+    }
+    
+    @Test
+    void anUpdateReadBeforeTheOneHeldIsIgnored() {
+        leaderboard.put(1, 5, "fiction", histogram(0, 0, 0, 0, 3));
+        
+        leaderboard.put(1, 4, "fiction", histogram(3, 0, 0, 0, 0));
+        assertThat(leaderboard.get(1).orElseThrow().reviewCount()).isEqualTo(3);
+        assertThat(leaderboard.get(1).orElseThrow().ratingSum()).isEqualTo(15);
+        
+        leaderboard.put(1, 6, "fiction", histogram(3, 0, 0, 0, 1));
+        assertThat(leaderboard.get(1).orElseThrow().ratingSum()).isEqualTo(8);
+    }
+    
+    private static int[] histogram(int... counts) {
+        return counts;
+    }
+}
@@ -0,0 +1,74 @@
+package com.bookreview.ratings;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.service.BookService;
+import com.bookreview.service.ReviewService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Writes reviews through the service and checks that the top-rated list of the API follows them
+ * without a rebuild.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ratingstats;DB_CLOSE_DELAY=-1",
+        "bookreview.sample-data.enabled=false"
+})
+@AutoConfigureMockMvc(addFilters = false)
+class RatingStatsServiceTest {
+    
+    private static final String GENRE = "Leaderboard Test";
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private RatingStatsService ratingStatsService;
+    
+    @Test
+    void aReviewWriteMovesItsBookOnTheTopRatedList() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!ratingStatsService.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Book leader = bookService.saveBook(new Book("Early Favourite", "Author", GENRE, null, null, 2001));
+        Book challenger = bookService.saveBook(new Book("Late Bloomer", "Author", GENRE, null, null, 2002));
+        reviewService.saveReview(new Review("Ann", 5, "Great", leader));
+        reviewService.saveReview(new Review("Bob", 5, "Great", leader));
+        Review challengerReview = reviewService.saveReview(new Review("Ann", 3, "Fine", challenger));
+        assertThat(topRatedIds()).containsExactly(leader.getId(), challenger.getId());
+        
+        for (String reviewer : List.of("Cy", "Dee", "Eve", "Fay")) {
+            reviewService.saveReview(new Review(reviewer, 5, "Loved it", challenger));
+        }
+        assertThat(topRatedIds()).containsExactly(challenger.getId(), leader.getId());
+        
+        reviewService.deleteReview(challengerReview.getId());
+        assertThat(topRatedIds()).containsExactly(challenger.getId(), leader.getId());
+        assertThat(ratingStatsService.getStats(challenger.getId()).orElseThrow().reviewCount()).isEqualTo(4);
+    }
+    
+    private List<Long> topRatedIds() throws Exception {
+        String body = mockMvc.perform(get("/api/v1/books/top-rated").param("genre", " leaderboard  TEST"))
+                .andReturn().getResponse().getContentAsString();
+        List<Number> ids = JsonPath.read(body, "$.items[*].id");
+        return ids.stream().map(Number::longValue).toList();
+    }
+}
@@ -0,0 +1,120 @@
+package com.bookreview.schema;
+
+import com.bookreview.BookReviewApplication;
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.service.BookService;
+import com.bookreview.service.ReviewService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application on a database shaped like one the original application created with
+ * ddl-auto=update, holding books and reviews, and checks that Flyway baselines it and the later
+ * migrations bring it to the schema the entities validate against, data included.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BaselineUpgradeTest {
+    
+    private static final String URL = "jdbc:h2:mem:baseline-upgrade;DB_CLOSE_DELAY=-1";
+    
+    // As Hibernate generated it for the original entities, rows and identity counters included
+    private static final String[] BASELINE = {
+            """
+            CREATE TABLE books (
+                id BIGINT GENERATED BY DEFAULT AS IDENTITY(START WITH 1 RESTART WITH 8) NOT NULL PRIMARY KEY,
+                author CHARACTER VARYING(100) NOT NULL,
+                created_at TIMESTAMP(6),
+                description CHARACTER VARYING,
+                genre CHARACTER VARYING(50),
+                isbn CHARACTER VARYING(20),
+                publication_year INTEGER,
+                title CHARACTER VARYING(200) NOT NULL
+            )""",
+            """
+            CREATE TABLE reviews (
+                id BIGINT GENERATED BY DEFAULT AS IDENTITY(START WITH 1 RESTART WITH 12) NOT NULL PRIMARY KEY,
+                comment CHARACTER VARYING NOT NULL,
+                created_at TIMESTAMP(6),
+                rating INTEGER NOT NULL CHECK ((rating >= 1) AND (rating <= 5)),
+                reviewer_name CHARACTER VARYING(100) NOT NULL,
+                book_id BIGINT NOT NULL,
+                CONSTRAINT fk6a9k6xvev80se5rreqvuqr7f9 FOREIGN KEY (book_id) REFERENCES books (id)
+            )""",
+            "INSERT INTO books (id, author, created_at, genre, title) VALUES "
+                    + "(3, 'Austen', TIMESTAMP '2020-01-01 10:00:00', ' classic  fiction', 'Emma'), "
+                    + "(7, 'Orwell', TIMESTAMP '2020-02-01 10:00:00', 'Dystopian', '1984')",
+            "INSERT INTO reviews (id, book_id, comment, created_at, rating, reviewer_name) VALUES "
+                    + "(4, 3, 'Fine', TIMESTAMP '2020-03-01 10:00:00', 4, 'Ann'), "
+                    + "(9, 3, 'Great', TIMESTAMP '2020-03-02 10:00:00', 5, 'Bob'), "
+                    + "(11, 7, 'Bleak', TIMESTAMP '2020-03-03 10:00:00', 2, 'Cy')"
+    };
+    
+    private ConfigurableApplicationContext context;
+    
+    @BeforeAll
+    void upgradeBaselineDatabase() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(URL, "sa", "password", true);
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            for (String statement : BASELINE) {
+                jdbcTemplate.execute(statement);
+            }
+        } finally {
+            dataSource.destroy();
+        }
+        context = new SpringApplicationBuilder(BookReviewApplication.class)
+                .run("--spring.datasource.url=" + URL,
+                        "--bookreview.sample-data.enabled=false",
+                        "--server.port=0");
+    }
+    
+    @AfterAll
+    void stop() {
+        context.close();
+    }
+    
+    @Test
+    void theBaselineIsRecordedAndEveryLaterMigrationApplied() {
+        List<String> versions = context.getBean(JdbcTemplate.class).queryForList(
+                "SELECT \"version\" || ' ' || \"type\" FROM \"flyway_schema_history\""
+                        + " WHERE \"version\" IS NOT NULL AND \"success\" ORDER BY \"installed_rank\"", String.class);
+        assertThat(versions).startsWith("1 BASELINE", "2 SQL").contains("6 SQL");
+    }
+    
+    @Test
+    void existingBooksGetTheirRatingAggregatesVersionsAndGenres() {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        Book emma = bookRepository.findById(3L).orElseThrow();
+        assertThat(emma.getReviewCount()).isEqualTo(2);
+        assertThat(emma.getRatingSum()).isEqualTo(9);
+        assertThat(emma.getRatingHistogram()).containsExactly(0, 0, 0, 1, 1);
+        assertThat(emma.getVersion()).isZero();
+        assertThat(emma.getUpdatedAt()).isEqualTo(emma.getCreatedAt());
+        
+        Book orwell = bookRepository.findById(7L).orElseThrow();
+        assertThat(orwell.getRatingHistogram()).containsExactly(0, 1, 0, 0, 0);
+        assertThat(context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT COUNT(*) FROM books WHERE genre_id IS NULL", Integer.class)).isZero();
+    }
+    
+    @Test
+    void newRowsTakeIdsPastTheExistingOnes() {
+        Book book = context.getBean(BookService.class).saveBook(new Book("New", "Author", "Dystopian", null, null, 2024));
+        Review review = context.getBean(ReviewService.class).saveReview(new Review("Dee", 3, "Fair", book));
+        assertThat(book.getId()).isGreaterThan(7L);
+        assertThat(review.getId()).isGreaterThan(11L);
+        assertThat(context.getBean(BookRepository.class).findById(book.getId()).orElseThrow().getReviewCount()).isEqualTo(1);
+    }
+}
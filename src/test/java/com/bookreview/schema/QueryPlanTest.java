@@ -0,0 +1,92 @@
+package com.bookreview.schema;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.repository.ReviewRepository;
+import com.bookreview.service.GenreService;
+import com.bookreview.service.RatingAggregateRepairJob;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Explains every repository query against the schema the migrations build and fails when one
+ * reads a whole table, however small, unless it is marked @ExpectedFullScan. A new query
+ * therefore comes with an index in db/migration or with a reason why it needs none.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:queryplan;DB_CLOSE_DELAY=-1")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+    
+    private static final int BOOKS = 30;
+    
+    private static final int REVIEWS_PER_BOOK = 5;
+    
+    @Autowired
+    private QueryPlanVerifier queryPlanVerifier;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private ReviewRepository reviewRepository;
+    
+    @Autowired
+    private RatingAggregateRepairJob ratingAggregateRepairJob;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Rows in every table, so H2 plans as it would for real data and every scan is over the threshold
+    @BeforeAll
+    void seed() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book("Plan Book " + i, "Author " + (i % 7), "Genre " + (i % 3), null,
+                    "Description of book " + i, 1950 + i);
+            book.setCreatedAt(start.plusDays(i));
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+        List<Review> reviews = new ArrayList<>();
+        for (Book book : books) {
+            for (int r = 0; r < REVIEWS_PER_BOOK; r++) {
+                Review review = new Review("Reader " + r, 1 + (r % 5), "Review " + r + " of " + book.getTitle(), book);
+                review.setCreatedAt(book.getCreatedAt().plusHours(r + 1));
+                reviews.add(review);
+            }
+        }
+        reviewRepository.saveAll(reviews);
+        ratingAggregateRepairJob.recomputeAll();
+        genreService.assignMissingGenres();
+        jdbcTemplate.execute("INSERT INTO journal_checkpoints (journal, last_sequence) VALUES ('plan', 0)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+    
+    @Test
+    void everyRepositoryQueryUsesAnIndex() {
+        QueryPlanVerifier.Result result = queryPlanVerifier.verify(0);
+        
+        assertThat(result.queries()).as("repository queries explained").isGreaterThan(40);
+        assertThat(result.fullScans())
+                .as("queries reading a whole table:\n%s", result.fullScans().stream()
+                        .map(scan -> scan.query() + " scans " + scan.table() + "\n" + scan.plan())
+                        .collect(Collectors.joining("\n\n")))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,135 @@
+package com.bookreview.search;
+
+import com.bookreview.model.Book;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the results of the search index with the LIKE query it replaces on a small catalogue,
+ * before and after books are added, edited and deleted. A query matches a book when each of its
+ * terms is in the title, author or genre, so the index finds everything LIKE finds, and exactly
+ * the same books for a single term that no genre contains.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booksearch;DB_CLOSE_DELAY=-1",
+        "bookreview.sample-data.enabled=false"
+})
+class BookSearchIndexTest {
+    
+    // Single terms, none of them part of a genre; "ea", "go" and "j" are shorter than a trigram
+    private static final List<String> TERMS = List.of(
+            "hobbit", "TOLKIEN", "Austen", "the", "ea", "go", "j", "persuasion", "abbey", "nothing like it");
+    
+    private static final List<String> QUERIES = List.of(
+            "the hobbit", "  JANE   austen ", "jane emma", "tolkien the", "Le  gu", "dune herbert x");
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private BookSearchService bookSearchService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    private Book dune;
+    private Book persuasion;
+    private Book silmarillion;
+    
+    @BeforeEach
+    void createCatalogue() throws InterruptedException {
+        bookRepository.findAll().forEach(book -> bookService.deleteBook(book.getId()));
+        save("The Hobbit", "J.R.R. Tolkien", "Fantasy");
+        silmarillion = save("The Silmarillion", "J.R.R. Tolkien", "Fantasy");
+        dune = save("Dune", "Frank Herbert", "Science Fiction");
+        save("Emma", "Jane Austen", "Classic");
+        persuasion = save("Persuasion", "Jane Austen", "Classic");
+        save("A Wizard of Earthsea", "Ursula K. Le Guin", "Fantasy");
+        save("Go Tell It on the Mountain", "James Baldwin", "Classic");
+        
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!bookSearchService.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(bookSearchService.isReady()).as("the index is loaded").isTrue();
+    }
+    
+    @Test
+    void theIndexMatchesTheLikeQuery() {
+        assertSameResults();
+        assertThat(search("fantasy")).as("genres are searched as well").hasSize(3);
+        assertThat(search("jane emma")).as("terms may match different fields").hasSize(1);
+        assertThat(likeSearch("jane emma")).isEmpty();
+    }
+    
+    @Test
+    void theIndexFollowsAddedEditedAndDeletedBooks() {
+        Book companion = save("The Hobbit Companion", "David Day", "Reference");
+        assertThat(search("hobbit")).contains(companion.getId());
+        
+        Book edit = new Book("Northanger Abbey", "Jane Austen", "Classic", null, null, 1817);
+        edit.setId(persuasion.getId());
+        bookService.saveBook(edit);
+        edit = new Book("Dune Messiah", "Frank Herbert", "Science Fiction", null, null, 1969);
+        edit.setId(dune.getId());
+        bookService.saveBook(edit);
+        assertThat(search("persuasion")).isEmpty();
+        assertThat(search("abbey")).containsExactly(persuasion.getId());
+        
+        bookService.deleteBook(silmarillion.getId());
+        assertThat(search("silmarillion")).isEmpty();
+        
+        assertSameResults();
+    }
+    
+    private void assertSameResults() {
+        for (String term : TERMS) {
+            assertThat(search(term)).as(term).containsExactlyInAnyOrderElementsOf(likeSearch(term));
+        }
+        for (String query : QUERIES) {
+            String phrase = String.join(" ", query.trim().split("\\s+"));
+            List<Long> found = search(query);
+            assertThat(found).as(query).containsExactlyInAnyOrderElementsOf(everyTermMatches(phrase));
+            List<Long> phraseMatches = likeSearch(phrase);
+            assertThat(found.subList(0, phraseMatches.size())).as(query + ", whole phrase matches first")
+                    .containsExactlyInAnyOrderElementsOf(phraseMatches);
+        }
+    }
+    
+    // As BookService.searchBookSummaries calls it
+    private List<Long> search(String query) {
+        return bookSearchService.searchIds(query.trim());
+    }
+    
+    private List<Long> likeSearch(String keyword) {
+        return bookRepository.findIdsByTitleOrAuthorContaining(keyword, Limit.of(100));
+    }
+    
+    private List<Long> everyTermMatches(String phrase) {
+        List<String> terms = List.of(phrase.toLowerCase(Locale.ROOT).split(" "));
+        return bookRepository.findAll().stream()
+                .filter(book -> terms.stream().allMatch(term -> contains(book.getTitle(), term)
+                        || contains(book.getAuthor(), term) || contains(book.getGenre(), term)))
+                .map(Book::getId)
+                .toList();
+    }
+    
+    private static boolean contains(String field, String term) {
+        return field != null && field.toLowerCase(Locale.ROOT).contains(term);
+    }
+    
+    private Book save(String title, String author, String genre) {
+        return bookService.saveBook(new Book(title, author, genre, null, null, 2000));
+    }
+}
@@ -0,0 +1,120 @@
+package com.bookreview.service;
+
+import com.bookreview.model.Book;
+import com.bookreview.model.Genre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates a genre on another connection while a book with the same genre is saved, and checks
+ * that the save links the book to that genre instead of failing on the unique normalized name.
+ * The pool has two connections, one for each, so a save that needed a second connection to
+ * create its genre would time out.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:genreservice;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=5000"
+})
+class GenreServiceTest {
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private GenreService genreService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void aGenreCreatedConcurrentlyIsReusedRatherThanFailingTheSave() throws Exception {
+        // Insert the genre and hold the transaction open, so the save does not see it yet and its
+        // own insert waits on the unique key until this commits
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<?> other = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO genres (id, name, normalized_name) VALUES (999999, 'Race  Genre', 'race genre')");
+            inserted.countDown();
+            await(commit);
+        }));
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+        
+        Future<Book> saved = executor.submit(() -> bookService.saveBook(new Book("Raced", "Author", "race genre", null, null, 2015)));
+        Thread.sleep(200);
+        commit.countDown();
+        other.get(10, TimeUnit.SECONDS);
+        
+        Book book = saved.get(10, TimeUnit.SECONDS);
+        assertThat(book.getGenreRef().getId()).isEqualTo(999999L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres WHERE normalized_name = 'race genre'", Integer.class))
+                .isEqualTo(1);
+        assertThat(genreService.findByName("Race Genre")).get().extracting(Genre::getBookCount).isEqualTo(1);
+    }
+    
+    @Test
+    void aNewGenreIsCreatedOnce() {
+        Genre first = genreService.resolve("Slow  Burn");
+        Genre second = genreService.resolve("slow burn ");
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(second.getName()).isEqualTo("Slow  Burn");
+    }
+    
+    @Test
+    void aNewGenreIsCreatedOnTheSavesOwnConnectionAndRolledBackWithIt() throws Exception {
+        // Hold the pool's other connection, so the save has exactly one
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class);
+            held.countDown();
+            await(release);
+        }));
+        assertThat(held.await(10, TimeUnit.SECONDS)).isTrue();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                bookService.saveBook(new Book("Abandoned", "Author", "Short-lived Genre", null, null, 2016));
+                assertThat(genreService.findByName("short-lived genre")).isPresent();
+                status.setRollbackOnly();
+            });
+        } finally {
+            release.countDown();
+        }
+        holder.get(10, TimeUnit.SECONDS);
+        
+        assertThat(genreService.findByName("short-lived genre")).isEmpty();
+        Book saved = bookService.saveBook(new Book("Kept", "Author", "Short-lived Genre", null, null, 2017));
+        assertThat(saved.getGenreRef().getName()).isEqualTo("Short-lived Genre");
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
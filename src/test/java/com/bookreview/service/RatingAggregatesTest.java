@@ -0,0 +1,141 @@
+package com.bookreview.service;
+
+import com.bookreview.config.JobLeases;
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that review writes keep each book's stored rating aggregates exact, and that the repair
+ * job corrects drift without losing a review written while it runs.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:ratingaggregates;DB_CLOSE_DELAY=-1")
+class RatingAggregatesTest {
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private RatingAggregateRepairJob ratingAggregateRepairJob;
+    
+    @Autowired
+    private JobLeases jobLeases;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void creatingEditingAndDeletingReviewsKeepTheAggregatesExact() {
+        Book book = bookService.saveBook(new Book("Aggregated", "Author", "Fiction", null, null, 2010));
+        Review first = reviewService.saveReview(new Review("Ann", 4, "Good", book));
+        Review second = reviewService.saveReview(new Review("Bob", 2, "Meh", book));
+        assertAggregates(book, 2, 6, 0, 1, 0, 1, 0);
+        
+        Review edit = new Review("Ann", 5, "Better on a second read", book);
+        edit.setId(first.getId());
+        reviewService.saveReview(edit);
+        assertAggregates(book, 2, 7, 0, 1, 0, 0, 1);
+        
+        reviewService.deleteReview(second.getId());
+        assertAggregates(book, 1, 5, 0, 0, 0, 0, 1);
+        
+        reviewService.deleteReview(first.getId());
+        assertAggregates(book, 0, 0, 0, 0, 0, 0, 0);
+        assertThat(ratingAggregateRepairJob.recomputeAll()).as("nothing has drifted").isZero();
+    }
+    
+    @Test
+    void theRepairJobCorrectsDriftedAggregates() {
+        Book reviewed = bookService.saveBook(new Book("Drifted", "Author", "Fiction", null, null, 2011));
+        reviewService.saveReview(new Review("Ann", 3, "Fine", reviewed));
+        Book unreviewed = bookService.saveBook(new Book("Never Reviewed", "Author", "Fiction", null, null, 2012));
+        jdbcTemplate.update("INSERT INTO reviews (id, book_id, reviewer_name, rating, comment, created_at, updated_at, version) "
+                + "VALUES (NEXT VALUE FOR reviews_seq, ?, 'Bulk', 5, 'Loaded with SQL', LOCALTIMESTAMP, LOCALTIMESTAMP, 0)", reviewed.getId());
+        jdbcTemplate.update("UPDATE books SET review_count = 3, rating_sum = 7, rating_1_count = 3 WHERE id = ?", unreviewed.getId());
+        
+        assertThat(ratingAggregateRepairJob.recomputeAll()).isEqualTo(2);
+        assertAggregates(reviewed, 2, 8, 0, 0, 1, 0, 1);
+        assertAggregates(unreviewed, 0, 0, 0, 0, 0, 0, 0);
+    }
+    
+    @Test
+    void aReviewSavedWhileTheRepairWaitsForItsBookIsCounted() throws Exception {
+        Book book = bookService.saveBook(new Book("Busy", "Author", "Fiction", null, null, 2013));
+        reviewService.saveReview(new Review("Ann", 4, "Good", book));
+        jdbcTemplate.update("UPDATE books SET review_count = 9, rating_sum = 9 WHERE id = ?", book.getId());
+        
+        // Save a review and hold its transaction open, with the book's row locked by its delta
+        CountDownLatch saved = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<?> writer = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            reviewService.saveReview(new Review("Bob", 1, "Not for me", book));
+            saved.countDown();
+            await(commit);
+        }));
+        assertThat(saved.await(10, TimeUnit.SECONDS)).isTrue();
+        
+        Future<Integer> repair = executor.submit(ratingAggregateRepairJob::recomputeAll);
+        Thread.sleep(200);
+        commit.countDown();
+        writer.get(10, TimeUnit.SECONDS);
+        
+        assertThat(repair.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+        assertAggregates(book, 2, 5, 1, 0, 0, 1, 0);
+    }
+    
+    @Test
+    void onlyOneInstanceTakesTheRepairLease() {
+        assertThat(jobLeases.tryAcquire("test-job", Duration.ofMinutes(5))).isTrue();
+        assertThat(jobLeases.tryAcquire("test-job", Duration.ofMinutes(5))).isFalse();
+        
+        jdbcTemplate.update("UPDATE job_leases SET locked_until = DATEADD('MINUTE', -1, LOCALTIMESTAMP) WHERE job = 'test-job'");
+        assertThat(jobLeases.tryAcquire("test-job", Duration.ofMinutes(5))).as("an expired lease is taken again").isTrue();
+    }
+    
+    private void assertAggregates(Book book, int count, long sum, int... histogram) {
+        Book stored = bookRepository.findById(book.getId()).orElseThrow();
+        assertThat(stored.getReviewCount()).isEqualTo(count);
+        assertThat(stored.getRatingSum()).isEqualTo(sum);
+        assertThat(stored.getRatingHistogram()).containsExactly(histogram);
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.bookreview.writebehind;
+
+import com.bookreview.BookReviewApplication;
+import com.bookreview.model.Book;
+import com.bookreview.model.Review;
+import com.bookreview.repository.BookRepository;
+import com.bookreview.service.BookService;
+import com.bookreview.writebehind.ReviewWriteBehind.Admission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application with review write-behind enabled on journals prepared as a crash would
+ * leave them, and with the book's row locked to stall the writer, and checks what gets written.
+ * Each test uses a database of its own, created by a first run that adds the book.
+ */
+class ReviewWriteBehindTest {
+    
+    private static final String NODE = "node-a";
+    
+    @TempDir
+    private Path journalDir;
+    
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    
+    private Connection lockHolder;
+    
+    // The book of the test, once created
+    private Book book;
+    
+    @AfterEach
+    void stop() throws Exception {
+        if (lockHolder != null) {
+            lockHolder.rollback();
+            lockHolder.close();
+        }
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+    
+    @Test
+    void journalledReviewsPastTheCheckpointAreWrittenOnceOnRestart() throws Exception {
+        String url = url("replay");
+        book = createBook(url);
+        jdbc(url).update("INSERT INTO journal_checkpoints (journal, last_sequence) VALUES ('reviews:" + NODE + "', 1)");
+        writeJournal(NODE, book, 1, 2, 3);
+        writeJournal("node-b", book, 4);
+        
+        ConfigurableApplicationContext context = start(url);
+        
+        assertThat(reviewCount(context, book)).as("only the entries past this node's checkpoint").isEqualTo(2);
+        assertThat(context.getBean(BookRepository.class).findById(book.getId()).orElseThrow().getReviewCount()).isEqualTo(2);
+        assertThat(context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT last_sequence FROM journal_checkpoints WHERE journal = 'reviews:" + NODE + "'", Long.class)).isEqualTo(3);
+        assertThat(journal(NODE)).isEmptyFile();
+        assertThat(journal("node-b")).as("another node's journal is left alone").isNotEmptyFile();
+        
+        context.close();
+        assertThat(reviewCount(start(url), book)).as("nothing is written twice").isEqualTo(2);
+    }
+    
+    @Test
+    void theServerStartsWhenTheReplayCannotFinishAndTheWriterCatchesUp() throws Exception {
+        String url = url("stalled-replay");
+        book = createBook(url);
+        writeJournal(NODE, book, 1, 2);
+        lockBook(url, book);
+        
+        long started = System.nanoTime();
+        ConfigurableApplicationContext context = start(url, "--bookreview.reviews.write-behind.replay-timeout=2s");
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started)).isLessThan(30);
+        assertThat(reviewCount(context, book)).isZero();
+        
+        releaseBook();
+        await(() -> reviewCount(context, book) == 2);
+        await(() -> journal(NODE).toFile().length() == 0);
+        assertThat(context.getBean(BookRepository.class).findById(book.getId()).orElseThrow().getReviewCount()).isEqualTo(2);
+    }
+    
+    @Test
+    void aFullQueueRejectsReviewsUntilTheWriterCatchesUp() throws Exception {
+        ConfigurableApplicationContext context = startWithStalledWriter("rejecting", "reject");
+        ReviewWriteBehind writeBehind = context.getBean(ReviewWriteBehind.class);
+        
+        assertThat(writeBehind.submit(new Review("Cy", 1, "Third", book))).isEqualTo(Admission.REJECTED);
+        
+        releaseBook();
+        await(() -> reviewCount(context, book) == 2);
+        assertThat(writeBehind.submit(new Review("Cy", 1, "Third", book))).isEqualTo(Admission.QUEUED);
+        await(() -> reviewCount(context, book) == 3);
+    }
+    
+    @Test
+    void aFullQueueHandsReviewsBackInSyncMode() throws Exception {
+        ConfigurableApplicationContext context = startWithStalledWriter("syncing", "sync");
+        
+        assertThat(context.getBean(ReviewWriteBehind.class).submit(new Review("Cy", 1, "Third", book)))
+                .isEqualTo(Admission.WRITE_NOW);
+    }
+    
+    @Test
+    void concurrentSubmissionsShareJournalForcesAndAreAllWritten() throws Exception {
+        String url = url("group-commit");
+        book = createBook(url);
+        ConfigurableApplicationContext context = start(url);
+        ReviewWriteBehind writeBehind = context.getBean(ReviewWriteBehind.class);
+        lockBook(url, book);
+        
+        int submissions = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Admission>> admissions = new ArrayList<>();
+            for (int i = 0; i < submissions; i++) {
+                Review review = new Review("Reader " + i, 1 + i % 5, "Concurrent", book);
+                admissions.add(executor.submit(() -> writeBehind.submit(review)));
+            }
+            for (Future<Admission> admission : admissions) {
+                assertThat(admission.get(30, TimeUnit.SECONDS)).isEqualTo(Admission.QUEUED);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // Every acknowledged review is on disk, in sequence order
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        List<Long> sequences = new ArrayList<>();
+        for (String line : Files.readAllLines(journal(NODE))) {
+            sequences.add(objectMapper.readValue(line, ReviewSubmission.class).sequence());
+        }
+        assertThat(sequences).hasSize(submissions).isSorted();
+        assertThat(context.getBean(MeterRegistry.class).get("bookreview.reviews.write.behind.journal.sync").timer().count())
+                .isBetween(1L, (long) submissions);
+        
+        releaseBook();
+        await(() -> reviewCount(context, book) == submissions);
+        await(() -> journal(NODE).toFile().length() == 0);
+        assertThat(context.getBean(BookRepository.class).findById(book.getId()).orElseThrow().getReviewCount()).isEqualTo(submissions);
+    }
+    
+    // Queue of one: the writer holds the first review, stalled on the book's row lock, and the
+    // second fills the queue
+    private ConfigurableApplicationContext startWithStalledWriter(String name, String whenFull) throws Exception {
+        String url = url(name);
+        book = createBook(url);
+        ConfigurableApplicationContext context = start(url,
+                "--bookreview.reviews.write-behind.queue-capacity=1",
+                "--bookreview.reviews.write-behind.when-full=" + whenFull);
+        ReviewWriteBehind writeBehind = context.getBean(ReviewWriteBehind.class);
+        lockBook(url, book);
+        
+        assertThat(writeBehind.submit(new Review("Ann", 5, "First", book))).isEqualTo(Admission.QUEUED);
+        await(() -> queued(context) == 0);
+        assertThat(writeBehind.submit(new Review("Bob", 4, "Second", book))).isEqualTo(Admission.QUEUED);
+        return context;
+    }
+    
+    private static String url(String name) {
+        return "jdbc:h2:mem:write-behind-" + name + ";DB_CLOSE_DELAY=-1";
+    }
+    
+    private Book createBook(String url) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BookReviewApplication.class)
+                .run("--spring.datasource.url=" + url, "--bookreview.sample-data.enabled=false", "--server.port=0")) {
+            return context.getBean(BookService.class).saveBook(new Book("Journalled", "Author", "Fiction", null, null, 2020));
+        }
+    }
+    
+    private ConfigurableApplicationContext start(String url, String... args) {
+        List<String> all = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--bookreview.sample-data.enabled=false",
+                "--server.port=0",
+                "--bookreview.node-id=" + NODE,
+                "--bookreview.reviews.write-behind.enabled=true",
+                "--bookreview.reviews.write-behind.journal-dir=" + journalDir));
+        all.addAll(List.of(args));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BookReviewApplication.class)
+                .run(all.toArray(String[]::new));
+        contexts.add(context);
+        return context;
+    }
+    
+    private void writeJournal(String node, Book book, long... sequences) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        StringBuilder lines = new StringBuilder();
+        for (long sequence : sequences) {
+            lines.append(objectMapper.writeValueAsString(new ReviewSubmission(sequence, book.getId(), "Reader " + sequence,
+                    3, "Journalled review " + sequence, LocalDateTime.now()))).append('\n');
+        }
+        Files.writeString(journal(node), lines, StandardCharsets.UTF_8);
+    }
+    
+    private Path journal(String node) {
+        return journalDir.resolve("review-journal-" + node + ".jsonl");
+    }
+    
+    // Holds the book's row lock in an open transaction, as a long write on another instance would
+    private void lockBook(String url, Book book) throws Exception {
+        lockHolder = DriverManager.getConnection(url, "sa", "password");
+        lockHolder.setAutoCommit(false);
+        try (PreparedStatement statement = lockHolder.prepareStatement("UPDATE books SET title = title WHERE id = ?")) {
+            statement.setLong(1, book.getId());
+            statement.executeUpdate();
+        }
+    }
+    
+    private void releaseBook() throws Exception {
+        lockHolder.rollback();
+        lockHolder.close();
+        lockHolder = null;
+    }
+    
+    private static JdbcTemplate jdbc(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", "password"));
+    }
+    
+    private static int reviewCount(ConfigurableApplicationContext context, Book book) {
+        return context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT COUNT(*) FROM reviews WHERE book_id = ?", Integer.class, book.getId());
+    }
+    
+    private static double queued(ConfigurableApplicationContext context) {
+        return context.getBean(MeterRegistry.class).get("bookreview.reviews.write.behind.queue").gauge().value();
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 30s").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}